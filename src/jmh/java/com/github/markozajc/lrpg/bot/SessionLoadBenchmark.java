@@ -0,0 +1,104 @@
+package com.github.markozajc.lrpg.bot;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.markozajc.lrpg.game.Engine.Action;
+import com.github.markozajc.lrpg.game.Engine.Session;
+import com.github.markozajc.lrpg.game.LRpgExposed;
+
+/**
+ * Load test for the "threads" configuration property. Starts the given number of
+ * simulated game sessions at once on the executor {@link Launcher} would create and
+ * waits for all of them to finish. Every session is a headless {@link Session} of a
+ * starter player that blocks for a while on each turn, as it would while waiting
+ * for the player to reply to a dialog, and then explores or hits whatever it's
+ * fighting. The highest number of sessions that were in progress at the same time is
+ * printed after each iteration. Runs on a 64 MB heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class SessionLoadBenchmark {
+
+	private static final String POOL_SIZE = "20";
+	private static final int TURNS = 4;
+	private static final long REPLY_MILLISECONDS = 10;
+
+	@Param({
+			"pool", "virtual"
+	})
+	public String threads;
+
+	@Param({
+			"1000", "10000"
+	})
+	public int sessions;
+
+	private ExecutorService executor;
+	private AtomicInteger active;
+	private AtomicInteger peak;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		this.executor = Launcher.createExecutor(this.threads, POOL_SIZE);
+		this.active = new AtomicInteger();
+		this.peak = new AtomicInteger();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws InterruptedException {
+		this.executor.shutdown();
+		this.executor.awaitTermination(1, TimeUnit.MINUTES);
+		System.out.printf("%n%d sessions on %s threads: at most %d in progress at once%n", this.sessions,
+			this.threads, this.peak.get());
+	}
+
+	@Benchmark
+	public void sessions(Blackhole blackhole) throws InterruptedException {
+		CountDownLatch finished = new CountDownLatch(this.sessions);
+		for (int i = 0; i < this.sessions; i++) {
+			String name = "Session " + i;
+			this.executor.execute(() -> {
+				this.peak.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+				try {
+					Session session = new Session(LRpgExposed.getStarterPlayer(), name);
+					for (int turn = 0; turn < TURNS; turn++) {
+						Thread.sleep(REPLY_MILLISECONDS);
+						blackhole.consume(session.isFighting() ? session.act(Action.HIT) : session.explore());
+					}
+
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+
+				} finally {
+					this.active.decrementAndGet();
+					finished.countDown();
+				}
+			});
+		}
+
+		finished.await();
+	}
+
+}
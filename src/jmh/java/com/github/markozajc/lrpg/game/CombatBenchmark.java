@@ -0,0 +1,86 @@
+package com.github.markozajc.lrpg.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markozajc.lrpg.game.Combat.CombatFeed;
+import com.github.markozajc.lrpg.game.Enemies.Enemy;
+import com.github.markozajc.lrpg.game.Engine.Action;
+import com.github.markozajc.lrpg.game.Engine.Outcome;
+import com.github.markozajc.lrpg.game.Engine.Session;
+import com.github.markozajc.lrpg.game.Utilities.RandomSource;
+
+/**
+ * Benchmarks the combat hot paths: calculating an attack, taking a hit turn,
+ * rendering the combat feed (what {@code Combat.trimFeed} used to do) and whole
+ * headless turns, where a player keeps exploring and hitting whatever they meet.
+ * Random values are seeded so every run plays the same game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombatBenchmark {
+
+	private Session fight;
+	private Enemy enemy;
+	private Session game;
+	private CombatFeed feed;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Utilities.setRandom(RandomSource.seeded(0));
+
+		this.fight = new Session(LRpgExposed.getStarterPlayer(), "Benchmark");
+		while (this.fight.explore() != Outcome.PLAYER_TURN) {
+			// Explores until the fight isn't over before the player's first turn
+		}
+		this.enemy = this.fight.getPlayerFight().getEnemy();
+		// Only hit turns are taken in this fight, which never end it
+
+		this.feed = new CombatFeed();
+		for (int i = 0; i < CombatFeed.CAPACITY; i++)
+			this.feed.attack(i % 2 == 0, "Benchmark", this.enemy.getName(), i, i == 0);
+
+		this.game = new Session(LRpgExposed.getStarterPlayer(), "Benchmark");
+	}
+
+	@Benchmark
+	public int calculateAttack() {
+		return Utilities.calculateAttack(20, 30, false);
+	}
+
+	@Benchmark
+	public float hitTurn() {
+		this.enemy.setHp(this.enemy.getInfo().getMaxHp());
+		return Combat.hitTurn(this.fight.getPlayerFighter(), this.enemy, 0, this.fight);
+	}
+	// The enemy is healed every time so it's never defeated
+
+	@Benchmark
+	public String renderFeed() {
+		return this.feed.getLastLines(CombatFeed.CAPACITY);
+	}
+
+	@Benchmark
+	public Outcome headlessTurn() {
+		if (!this.game.isFighting())
+			return this.game.explore();
+
+		return this.game.act(Action.HIT);
+	}
+
+}
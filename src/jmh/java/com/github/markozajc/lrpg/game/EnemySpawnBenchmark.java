@@ -0,0 +1,61 @@
+package com.github.markozajc.lrpg.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markozajc.lrpg.game.Enemies.EnemyDatabase;
+import com.github.markozajc.lrpg.game.Enemies.RegionDatabase;
+
+/**
+ * Compares picking a random enemy by filtering all of the enemies (as
+ * {@link Encounters#getRandomEnemy(long)} used to) with picking it from the
+ * precomputed spawn tables. The reputations cover the start, the middle and the
+ * end of every region.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnemySpawnBenchmark {
+
+	@Param({
+			"0", "50", "99", "100", "600", "1099", "1100", "3600", "6099", "6100", "11100", "16099", "16100", "50000"
+	})
+	public long reputation;
+
+	@Benchmark
+	public EnemyDatabase filtered() {
+		long playerReputation = this.reputation;
+		return Utilities.getRandomMustMatch(EnemyDatabase.values(),
+			e -> e.getReputation() <= playerReputation && scanRegion(playerReputation)
+					.equals(scanRegion(e.getReputation())));
+	}
+
+	private static RegionDatabase scanRegion(long reputation) {
+		for (int i = 0; i < RegionDatabase.values().length; i++)
+			if (reputation < RegionDatabase.values()[i].getReputation())
+				return RegionDatabase.values()[i - 1];
+
+		return RegionDatabase.values()[RegionDatabase.values().length - 1];
+	}
+	// The region lookup Utilities.GET_REGION used at the time, so the baseline stays the
+	// original path
+
+	@Benchmark
+	public EnemyDatabase spawnTable() {
+		return Encounters.getRandomEnemy(this.reputation);
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.github.markozajc.lrpg.game;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markozajc.lrpg.game.Items.HealingItemDatabase;
+import com.github.markozajc.lrpg.game.Items.Inventory;
+import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.ItemRarityPack;
+import com.github.markozajc.lrpg.game.Items.ItemStack;
+import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
+import com.github.markozajc.lrpg.game.Utilities.RandomSource;
+
+/**
+ * Benchmarks the item hot paths: the inventory operations of a starter player,
+ * rolling one of the item packs with {@link Utilities#getRandomValue(List)} and
+ * picking an item from a pack with {@link ItemRarityPack#maybeGetItem(long)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemBenchmark {
+
+	@Param({
+			"0", "1100", "16100"
+	})
+	public long reputation;
+
+	private Inventory inventory;
+	private Item gear;
+	private List<ItemRarityPack> packs;
+	private ItemRarityPack weapons;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Utilities.setRandom(RandomSource.seeded(0));
+
+		this.inventory = LRpgExposed.getStarterPlayer().getInventory();
+		this.gear = Utilities.getWeaponItem(WeaponDatabase.DAGGER, 1);
+		this.packs = Arrays.asList(Assets.WEAPONS_PACK.get(), Assets.ARMOR_PACK.get(), Assets.ENEMY_DROP_PACK.get());
+		this.weapons = Assets.WEAPONS_PACK.get();
+	}
+
+	@Benchmark
+	public boolean addAndRemoveItem() {
+		this.inventory.addItem(HealingItemDatabase.FOOD_RATION, 1);
+		return this.inventory.removeItem(HealingItemDatabase.FOOD_RATION, 1);
+	}
+
+	@Benchmark
+	public boolean addAndRemoveGear() {
+		this.inventory.addItem(this.gear, 1);
+		return this.inventory.removeItem(this.gear, 1);
+	}
+
+	@Benchmark
+	public ItemStack getItemStack() {
+		return this.inventory.getItemStack(HealingItemDatabase.FOOD_RATION);
+	}
+
+	@Benchmark
+	public ItemRarityPack getRandomValue() {
+		return Utilities.getRandomValue(this.packs);
+	}
+
+	@Benchmark
+	public Item maybeGetItem() {
+		return this.weapons.maybeGetItem(this.reputation);
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.github.markozajc.lrpg.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markozajc.lrpg.game.Enemies.RegionDatabase;
+
+/**
+ * Compares resolving the region of a reputation by scanning
+ * {@link RegionDatabase#values()} (as {@link Utilities#GET_REGION} used to) with the
+ * binary search over the cached region thresholds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionBenchmark {
+
+	@Param({
+			"0", "100", "1100", "6100", "16100", "50000"
+	})
+	public long reputation;
+
+	@Benchmark
+	public RegionDatabase scan() {
+		long rep = this.reputation;
+		for (int i = 0; i < RegionDatabase.values().length; i++)
+			if (rep < RegionDatabase.values()[i].getReputation())
+				return RegionDatabase.values()[i - 1];
+
+		return RegionDatabase.values()[RegionDatabase.values().length - 1];
+	}
+
+	@Benchmark
+	public RegionDatabase bands() {
+		return Utilities.GET_REGION.apply(this.reputation);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.github.markozajc.lrpg.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markozajc.lrpg.game.Engine.Action;
+import com.github.markozajc.lrpg.game.Engine.Outcome;
+import com.github.markozajc.lrpg.game.Engine.Session;
+import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Player;
+import com.github.markozajc.lrpg.game.Utilities;
+import com.github.markozajc.lrpg.game.Utilities.RandomSource;
+import com.google.gson.Gson;
+
+/**
+ * Benchmarks writing and reading a single player through
+ * {@link LRpgProvider#getGson()}. The player is a starter player that has played a
+ * few fights and is in the middle of one, so the dungeon, the fight and the feed are
+ * all there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerGsonBenchmark {
+
+	private Gson gson;
+	private Player player;
+	private String json;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.gson = new LRpgProvider().getGson();
+		Utilities.setRandom(RandomSource.seeded(0));
+
+		Player realistic = LRpgExposed.getStarterPlayer();
+		realistic.setGold(12_345);
+		realistic.setXp(6_789);
+		Session session = new Session(realistic, "Benchmark");
+		for (int turn = 0; turn < 100 || !session.isFighting(); turn++) {
+			if (!session.isFighting() || session.act(Action.HIT) != Outcome.PLAYER_TURN)
+				session.explore();
+		}
+		// Leaves the player in a fight
+
+		Utilities.setRandom(null);
+		this.player = realistic;
+		this.json = this.gson.toJson(realistic);
+	}
+
+	@Benchmark
+	public String serialize() {
+		return this.gson.toJson(this.player);
+	}
+
+	@Benchmark
+	public Player deserialize() {
+		return this.gson.fromJson(this.json, Player.class);
+	}
+
+}
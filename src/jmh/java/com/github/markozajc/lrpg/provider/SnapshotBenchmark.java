@@ -0,0 +1,107 @@
+package com.github.markozajc.lrpg.provider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Player;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Compares loading and writing a snapshot of the player database as plain JSON and
+ * as GZIP-compressed JSON. The size of both snapshots is printed on tear down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+	@Param({
+			"1000", "10000"
+	})
+	public int players;
+
+	private Path directory;
+	private Map<Long, Player> data;
+	private RecordPlayerStore plain;
+	private RecordPlayerStore compressed;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Gson gson = LRpgExposed.registerGsonTypeAdapters(new GsonBuilder()).create();
+		Random random = new Random(0);
+
+		this.data = new HashMap<>();
+		for (int i = 0; i < this.players; i++) {
+			Player player = LRpgExposed.getStarterPlayer();
+			player.setGold(random.nextInt(100_000));
+			player.setXp(random.nextInt(1_000_000));
+			player.setLastActive(System.currentTimeMillis() - random.nextInt(Integer.MAX_VALUE));
+			this.data.put(100_000_000_000_000_000L + i, player);
+		}
+		// Snowflake-sized IDs, as they would be in production
+
+		this.directory = Files.createTempDirectory("lrpg-benchmark");
+		this.plain = new RecordPlayerStore(this.directory.resolve("plain"), gson, false);
+		this.compressed = new RecordPlayerStore(this.directory.resolve("compressed"), gson, true);
+		this.plain.snapshot(this.data);
+		this.compressed.snapshot(this.data);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.out.printf("%nSnapshot of %d players: %d bytes plain, %d bytes compressed%n", this.players,
+			Files.size(this.directory.resolve("plain/snapshot.json")),
+			Files.size(this.directory.resolve("compressed/snapshot.json.gz")));
+
+		try (Stream<Path> files = Files.walk(this.directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public Map<Long, Player> loadPlain() throws IOException {
+		return this.plain.loadAll();
+	}
+
+	@Benchmark
+	public Map<Long, Player> loadCompressed() throws IOException {
+		return this.compressed.loadAll();
+	}
+
+	@Benchmark
+	public void snapshotPlain() throws IOException {
+		this.plain.snapshot(this.data);
+	}
+
+	@Benchmark
+	public void snapshotCompressed() throws IOException {
+		this.compressed.snapshot(this.data);
+	}
+
+}
@@ -4,11 +4,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.login.LoginException;
 
@@ -26,7 +29,14 @@ import com.github.markozajc.lrpg.commands.LRpgCommand;
 import com.github.markozajc.lrpg.commands.ManualCommand;
 import com.github.markozajc.lrpg.commands.PingCommand;
 import com.github.markozajc.lrpg.commands.StatisticsCommand;
+import com.github.markozajc.lrpg.game.Utilities;
 import com.github.markozajc.lrpg.provider.LRpgProvider;
+import com.github.markozajc.lrpg.provider.MappedPlayerStore;
+import com.github.markozajc.lrpg.provider.PlayerArchive;
+import com.github.markozajc.lrpg.provider.PlayerJournal;
+import com.github.markozajc.lrpg.provider.PlayerStore;
+import com.github.markozajc.lrpg.provider.RecordPlayerStore;
+import com.github.markozajc.lrpg.provider.ShardedPlayerStore;
 
 import net.dv8tion.jda.core.JDABuilder;
 import net.dv8tion.jda.core.OnlineStatus;
@@ -35,6 +45,8 @@ import net.dv8tion.jda.core.entities.Game.GameType;
 
 public class Launcher {
 
+	private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
 	private static final List<Command> COMMANDS = Arrays.asList(new LRpgCommand(), new ManualCommand(),
 		new HelpCommand(), new PingCommand(), new StatisticsCommand());
 
@@ -53,8 +65,25 @@ public class Launcher {
 			BotConfiguration config = new BotConfiguration(Long.parseLong(props.getProperty("owner")),
 					props.getProperty("prefix"), COMMANDS, props.getProperty("name"));
 			JDABuilder builder = new JDABuilder(props.getProperty("token"));
-			PersistentDataConfiguration data = new PersistentDataConfiguration(
-					new FileDataSource(new File(props.getProperty("data"))), Arrays.asList(new LRpgProvider()));
+			File dataDirectory = new File(props.getProperty("data"));
+			LRpgProvider provider = new LRpgProvider();
+			ExecutorService executor = createExecutor(props.getProperty("threads", "pool"), props.getProperty("poolsize"));
+			Utilities.setSessionExecutor(executor);
+
+			String persistence = props.getProperty("persistence");
+			if (persistence != null)
+				setupIncrementalPersistence(provider, executor,
+					createStore(persistence, dataDirectory, provider, props.getProperty("compression", "none"),
+						Integer.parseInt(props.getProperty("shards", "1"))),
+					dataDirectory,
+					Long.parseLong(props.getProperty("flushinterval", "60")),
+					Boolean.parseBoolean(props.getProperty("journal")),
+					Integer.parseInt(props.getProperty("cachesize", "0")),
+					Long.parseLong(props.getProperty("archiveafter", "0")));
+			// Attached before Lithium starts, so no game runs without it
+
+			PersistentDataConfiguration data = new PersistentDataConfiguration(new FileDataSource(dataDirectory),
+					Arrays.asList(provider));
 
 			new Lithium(config, data, new Handlers(new CommandHandler(), new ExceptionHandler()), builder,
 					Arrays.asList((e, l) -> e.getJDA()
@@ -63,8 +92,92 @@ public class Launcher {
 								Game.of(GameType.DEFAULT,
 									l.getConfiguration().getDefaultPrefix() + "lrpg | Adventure awaits!"))),
 					Collections.emptyList(),
-					new ProcessManager(Executors.newFixedThreadPool(Integer.parseInt(props.getProperty("poolsize")))));
+					new ProcessManager(executor));
+		}
+	}
+
+	static ExecutorService createExecutor(String threads, String poolSize) {
+		switch (threads) {
+			case "pool":
+				return Executors.newFixedThreadPool(Integer.parseInt(poolSize));
+
+			case "virtual":
+				return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lrpg-session-", 0).factory());
+			// Sessions spend nearly all of their time waiting for a reply, which doesn't
+			// pin a carrier thread, so they aren't capped by the pool size
+
+			default:
+				throw new IllegalArgumentException("Unknown thread mode: " + threads);
+		}
+	}
+
+	private static PlayerStore createStore(String persistence, File dataDirectory, LRpgProvider provider, String compression, int shards) throws IOException {
+		boolean compressed;
+		switch (compression) {
+			case "none":
+				compressed = false;
+				break;
+
+			case "gzip":
+				compressed = true;
+				break;
+
+			default:
+				throw new IllegalArgumentException("Unknown compression: " + compression);
 		}
+
+		if (shards > 1) {
+			File shardDirectory = new File(dataDirectory, "shards");
+			return ShardedPlayerStore.open(shardDirectory.toPath(), shards,
+				shard -> createStore(persistence, new File(shardDirectory, "shard-" + shard), provider, compressed));
+		}
+		// Kept apart from the unsharded files so they aren't mistaken for a shard
+
+		return createStore(persistence, new File(dataDirectory, "players"), provider, compressed);
+	}
+
+	private static PlayerStore createStore(String persistence, File location, LRpgProvider provider, boolean compressed) throws IOException {
+		switch (persistence) {
+			case "incremental":
+				return new RecordPlayerStore(location.toPath(), provider.getGson(), compressed);
+
+			case "mapped":
+				return new MappedPlayerStore(new File(location.getPath() + ".bin").toPath());
+
+			default:
+				throw new IllegalArgumentException("Unknown persistence mode: " + persistence);
+		}
+	}
+
+	private static void setupIncrementalPersistence(LRpgProvider provider, ExecutorService executor, PlayerStore store, File dataDirectory, long flushInterval, boolean journal, int cacheSize, long archiveAfter) throws IOException {
+		if (archiveAfter > 0) {
+			provider.attachStore(store, new PlayerArchive(new File(dataDirectory, "archive").toPath(), provider.getGson()));
+			provider.setArchiveAfter(archiveAfter, TimeUnit.DAYS);
+
+		} else {
+			provider.attachStore(store);
+		}
+		if (cacheSize > 0)
+			provider.setCacheSize(cacheSize);
+		if (journal)
+			provider.attachJournal(new PlayerJournal(new File(dataDirectory, "journal").toPath(), provider.getGson()));
+		provider.scheduleFlush(flushInterval, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS))
+					executor.shutdownNow();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			// Stops the game sessions first, so players aren't changed while they're saved
+
+			try {
+				provider.shutdown();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, "lrpg-shutdown"));
 	}
 
 }
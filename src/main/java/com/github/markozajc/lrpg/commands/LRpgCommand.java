@@ -16,6 +16,7 @@ import com.github.markozajc.lithium.utilities.dialogs.message.prepared.PreparedD
 import com.github.markozajc.lithium.utilities.dialogs.message.prepared.PreparedEmbedDialog;
 import com.github.markozajc.lrpg.bot.Categories;
 import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Utilities;
 
 import net.dv8tion.jda.core.entities.TextChannel;
 
@@ -24,7 +25,7 @@ public class LRpgCommand extends Command {
 	public static Stream<CommandContext> getSessions(CommandContext context) {
 		context.getLithium().getEventWaiter().cleanWaiters();
 		return Stream
-				.concat(
+				.concat(Stream.concat(
 					context.getLithium()
 							.getEventWaiter()
 							.getWaiters()
@@ -32,7 +33,8 @@ public class LRpgCommand extends Command {
 							.stream()
 							.flatMap(Set::stream)
 							.map(Waiter::getParentContext),
-					context.getLithium().getProcessManager().getProcesses().stream().map(LithiumProcess::getContext))
+					context.getLithium().getProcessManager().getProcesses().stream().map(LithiumProcess::getContext)),
+					Utilities.getPausedSessions())
 				.filter(c -> c instanceof CommandContext)
 				.map(c -> (CommandContext) c)
 				.filter(c -> c.getCommand() instanceof LRpgCommand)
@@ -1,5 +1,6 @@
 package com.github.markozajc.lrpg.game;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Predicate;
@@ -18,7 +19,6 @@ import com.github.markozajc.lithium.utilities.dialogs.message.prepared.PreparedD
 import com.github.markozajc.lithium.utilities.dialogs.message.prepared.PreparedEmbedDialog;
 import com.github.markozajc.lrpg.game.Enemies.RegionDatabase;
 import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
-import com.github.markozajc.lrpg.game.Items.ArmorItem;
 import com.github.markozajc.lrpg.game.Items.BattleItem;
 import com.github.markozajc.lrpg.game.Items.BattleItemDatabase;
 import com.github.markozajc.lrpg.game.Items.DungeonItem;
@@ -32,13 +32,13 @@ import com.github.markozajc.lrpg.game.Items.ItemStack;
 import com.github.markozajc.lrpg.game.Items.UsableItem;
 import com.github.markozajc.lrpg.game.Items.UsableItemDatabase;
 import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
-import com.github.markozajc.lrpg.game.Items.WeaponItem;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithRarity;
 import com.github.markozajc.lrpg.game.LRpgExposed.RangedValue;
 import com.github.markozajc.lrpg.game.LRpgExposed.RangedValueObject;
 import com.github.markozajc.lrpg.game.Statuses.DungeonInfo;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
 import com.github.markozajc.lrpg.game.Statuses.GameInfo;
+import com.github.markozajc.lrpg.game.Utilities.RaritySampler;
 
 import net.dv8tion.jda.core.EmbedBuilder;
 
@@ -113,7 +113,7 @@ public class Assets {
 	public static final String ITEM_GEAR_USE_TEXT = "**This item can't be equipped while in the dungeon.**\n";
 	public static final String ITEM_USABLE_USE_TEXT = "**This item can be used anytime.**\n";
 	public static final String ITEM_ITEM_USE_TEXT = "**This item has no apparent use. You may be able to use it in a combination with something else**\n";
-	public static final String GOO_PUMP_TEXT = "- Goo is preparing a powerful attack. \uD83D\uDEE1 Guard yourself while you can!\n";
+	public static final String GOO_PUMP_TEXT = "- Goo is preparing a powerful attack. \uD83D\uDEE1 Guard yourself while you can!";
 	public static final String SCROLL_UPGRADE_DESCRIPTION_TEXT = "This scroll allows the reader to upgrade one piece of their gear to a higher level - "
 			+ "the higher the level, the better the gear. The highest level you can upgrade your gear to is **"
 			+ GearItem.MAX_GEAR_LEVEL + "**";
@@ -205,6 +205,8 @@ public class Assets {
 			EmbedDialog.generateEmbed("You are already at maximum health.", Constants.NONE));
 	public static final MessageDialog BYE_MESSAGE = new EmbedDialog(
 			EmbedDialog.generateEmbed("**Bye!**", Constants.LITHIUM));
+	public static final MessageDialog SESSION_FAILED_MESSAGE = new EmbedDialog(EmbedDialog.generateEmbed(
+		"Something went wrong and your game has ended. Your progress up to here has been saved.", Constants.RED));
 
 	private static final EmbedDialog[] RESURRECTION_MESSAGES = new EmbedDialog[] {
 			new EmbedDialog(EmbedDialog.generateEmbed("You insert the ankh into the hole on top of the hourglass...",
@@ -398,7 +400,7 @@ public class Assets {
 		}
 		// Adds the appropriate title
 
-		String feedString = Combat.trimFeed(f.getPlayerFight().getFeed(), 6);
+		String feedString = f.getPlayerFight().getFeed().getLastLines(6);
 		if (feedString.length() > 0)
 			builder.setDescription("```diff\n" + feedString + "```");
 		// Appends the feed if it exists
@@ -454,21 +456,34 @@ public class Assets {
 
 	//////////////////////////////////////////////////////////////////////////////////////
 	// ITEMRARITYPACKS "PACK"
-	// (suppliers are used for mutable items (eg. gear))
+	// (the suppliers used to create new packs of gear when gear was mutable, now they
+	// all return the same pack)
 	/////////////////////////////////////////////////////////////////////////////////////
-	public static final Supplier<ItemRarityPack> WEAPONS_PACK = () -> new ItemRarityPack(GearItem.RARITY,
+	private static final ItemRarityPack WEAPONS = new ItemRarityPack(GearItem.RARITY,
 			Utilities.gearDatabaseToGearItems(WeaponDatabase.values()));
-	public static final Supplier<ItemRarityPack> ARMOR_PACK = () -> new ItemRarityPack(GearItem.RARITY,
+	public static final Supplier<ItemRarityPack> WEAPONS_PACK = () -> WEAPONS;
+	private static final ItemRarityPack ARMOR = new ItemRarityPack(GearItem.RARITY,
 			Utilities.gearDatabaseToGearItems(ArmorDatabase.values()));
+	public static final Supplier<ItemRarityPack> ARMOR_PACK = () -> ARMOR;
 	public static final ItemRarityPack HEALIES_PACK = new ItemRarityPack(HEALIE_RARITY, HealingItemDatabase.values());
 	public static final ItemRarityPack ITEMS_PACK = new ItemRarityPack(1f, ItemDatabase.values());
 	public static final ItemRarityPack BATTLE_ITEMS_PACK = new ItemRarityPack(-1f, BattleItemDatabase.values());
 	public static final ItemRarityPack USABLE_ITEMS_PACK = new ItemRarityPack(-1f, UsableItemDatabase.values());
 	public static final ItemRarityPack ALL_NO_RARITY_PACK = ItemRarityPack.combine(-1f, ITEMS_PACK, BATTLE_ITEMS_PACK,
 		USABLE_ITEMS_PACK);
-	public static final Supplier<ItemRarityPack> ENEMY_DROP_PACK = () -> ItemRarityPack.combine(.05f,
-		WEAPONS_PACK.get(), ARMOR_PACK.get(), HEALIES_PACK);
-	public static final Supplier<ItemRarityPack> YOG_DROP_PACK = () -> new ItemRarityPack(1f,
-			new WeaponItem(WeaponDatabase.HSWORD, 0), new ArmorItem(ArmorDatabase.HERO, 0));
+	private static final ItemRarityPack ENEMY_DROP = ItemRarityPack.combine(.05f, WEAPONS, ARMOR, HEALIES_PACK);
+	public static final Supplier<ItemRarityPack> ENEMY_DROP_PACK = () -> ENEMY_DROP;
+	private static final ItemRarityPack YOG_DROP = new ItemRarityPack(1f,
+			Utilities.getWeaponItem(WeaponDatabase.HSWORD, 0), Utilities.getArmorItem(ArmorDatabase.HERO, 0));
+	public static final Supplier<ItemRarityPack> YOG_DROP_PACK = () -> YOG_DROP;
+
+	// The packs that encounters roll (before falling back to another pack), with their
+	// chance multipliers
+	public static final RaritySampler<ItemRarityPack> MERCHANT_PACKS = new RaritySampler<>(
+			Arrays.asList(ARMOR, WEAPONS, HEALIES_PACK), 1.5f);
+	public static final RaritySampler<ItemRarityPack> CHEST_PACKS = new RaritySampler<>(
+			Arrays.asList(WEAPONS, ARMOR, HEALIES_PACK), 2f);
+	public static final RaritySampler<ItemRarityPack> LOOT_PACKS = new RaritySampler<>(
+			Arrays.asList(HEALIES_PACK), .8f);
 
 }
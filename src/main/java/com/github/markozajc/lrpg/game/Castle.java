@@ -20,6 +20,8 @@ class Castle {
 	private Castle() {}
 
 	public static void displayCastle(GameInfo game) {
+		game.markDirty();
+
 		if (game.getPlayer().getPlayerDungeon() == null) {
 			new ChoiceDialog(game.getContext(), Assets.CASTLE_STATUS_PREPARED.generate(game), choice -> {
 				if (choice == 0) {
@@ -44,13 +46,13 @@ class Castle {
 					if (!game.getPlayer().getArmor().getType().equals(ArmorDatabase.NAKED)) {
 						armor = game.getPlayer().getArmor();
 						game.getPlayer().getInventory().addItem(armor, 1);
-						game.getPlayer().setArmor(new ArmorItem(ArmorDatabase.NAKED, 0));
+						game.getPlayer().setArmor(Utilities.getArmorItem(ArmorDatabase.NAKED, 0));
 					}
 
 					if (!game.getPlayer().getWeapon().getType().equals(WeaponDatabase.FISTS)) {
 						weapon = game.getPlayer().getWeapon();
 						game.getPlayer().getInventory().addItem(weapon, 1);
-						game.getPlayer().setWeapon(new WeaponItem(WeaponDatabase.FISTS, 0));
+						game.getPlayer().setWeapon(Utilities.getWeaponItem(WeaponDatabase.FISTS, 0));
 					}
 
 					List<GearItem<?>> unequipped = Arrays.asList(armor, weapon)
@@ -65,8 +67,7 @@ class Castle {
 						Assets.UNEQUIP_ALL_PREPARED.generate(unequipped).display(game.getChannel());
 					}
 
-					Utilities.sleep(1500);
-					displayCastle(game);
+					Utilities.later(game, 1500, () -> displayCastle(game));
 
 				} else if (choice == 3) {
 					Utilities.confirmExit(game.getContext(), () -> displayCastle(game));
@@ -4,6 +4,7 @@ import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.github.markozajc.lithium.Constants;
 import com.github.markozajc.lrpg.game.Enemies.Enemy;
@@ -13,6 +14,7 @@ import com.github.markozajc.lrpg.game.LRpgExposed.EmotableObject;
 import com.github.markozajc.lrpg.game.LRpgExposed.NamedObject;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithSpeed;
 import com.github.markozajc.lrpg.game.LRpgExposed.TurnActionObject;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerFight;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
 
 import net.dv8tion.jda.core.EmbedBuilder;
@@ -31,11 +33,35 @@ class Combat {
 
 	public static final int MAX_GUARD = 5;
 
-	public static float hitTurn(FightingCharacter self, FightingCharacter foe, int foeGuard, FightInfo fight) {
+	/**
+	 * The state of a fight that the combat rules work on. Implemented by
+	 * {@link FightInfo} for the fights played through Discord and by
+	 * {@link Engine.Session} for the headless ones.
+	 */
+	public static interface Battle {
+
+		@Nonnull
+		public Player getPlayer();
+
+		@Nonnull
+		public FightingCharacter getPlayerFighter();
+
+		public PlayerFight getPlayerFight();
+
+	}
+
+	enum TurnResult {
+		AGAIN,
+		FOE,
+		VICTORY,
+		SURRENDER
+	}
+
+	public static float hitTurn(FightingCharacter self, FightingCharacter foe, int foeGuard, Battle fight) {
 		return hitTurn(self, foe, foeGuard, fight, 0);
 	}
 
-	public static float hitTurn(FightingCharacter self, FightingCharacter foe, int foeGuard, FightInfo fight, int selfAttackOffset) {
+	public static float hitTurn(FightingCharacter self, FightingCharacter foe, int foeGuard, Battle fight, int selfAttackOffset) {
 		boolean critical = Utilities.getChance(Combat.CRIT_CHANCE);
 		// Calculates whether the hit is a critical
 
@@ -46,108 +72,145 @@ class Combat {
 		foe.decreaseHp(attack);
 		// Decreases foe's HP
 
-		fight.getPlayerFight()
-				.getFeed()
-				.append((self.equals(fight.getPlayerFighter()) ? "+ " : "- ") + self.getName() + " attacks "
-						+ foe.getName() + ". ");
-
+		boolean friendly = self.equals(fight.getPlayerFighter());
 		if (attack > 0) {
-			fight.getPlayerFight()
-					.getFeed()
-					.append(foe.getName() + " loses " + attack + " HP" + (critical ? " [CRITICAL]" : "") + ".\n");
+			fight.getPlayerFight().getFeed().attack(friendly, self.getName(), foe.getName(), attack, critical);
 
 		} else {
-			fight.getPlayerFight().getFeed().append(foe.getName() + " dodges " + self.getName() + "'s attack.\n");
+			fight.getPlayerFight().getFeed().dodge(friendly, self.getName(), foe.getName());
 		}
 
 		return self.getSpeed();
 	}
 
-	public static void fightEnemy(@Nonnull FightInfo fight, BiConsumer<Boolean, StringBuilder> callback) {
+	public static void fightEnemy(@Nonnull FightInfo fight, BiConsumer<Boolean, CombatFeed> callback) {
 		if (!fight.isResumed())
 			fight.getPlayerFighter().addTime(1f);
 		// Adds starting time to the player if the fight is fresh (not resumed)
 
 		Consumer<FightingCharacter> callbackInvoker = fc -> callback.accept(fc.equals(fight.getPlayerFighter()),
 			fight.getPlayerFight().getFeed());
+		TurnScheduler scheduler = new TurnScheduler(fight, callbackInvoker);
 		if (!fight.getPlayerFight().getEnemy().getInfo().isBoss() && Utilities.getChance(.5f)) {
 			// If enemy struck first (only non-bosses) - 50%
 			// TODO V2 stealth stat
-			turnEnemy(fight, callbackInvoker);
+			scheduler.schedule(fight.getPlayerFight().getEnemy(), fight.getPlayerFighter());
 		} else {
 			// If player struck first
-			turnPlayer(fight, callbackInvoker);
+			scheduler.schedule(fight.getPlayerFighter(), fight.getPlayerFight().getEnemy());
 		}
 	}
 
-	private static void turnPlayer(@Nonnull FightInfo fight, @Nonnull Consumer<FightingCharacter> endCallback) {
-		turnCharacter(fight, fight.getPlayerFighter(), fight.getPlayerFight().getEnemy(),
-			v -> turnEnemy(fight, endCallback), endCallback);
-	}
+	/**
+	 * Drives the turns of a fight in a loop instead of recursing from each turn's
+	 * callback. A callback only schedules the next turn. If it's called while its turn
+	 * is still running (as with the enemies, who don't wait for anything), the loop
+	 * picks the next turn up once the current one returns, so consecutive enemy turns
+	 * run one after another in constant stack depth. If it's called later (as with the
+	 * player, who replies to a dialog), it restarts the loop on the calling thread.
+	 */
+	private static final class TurnScheduler {
 
-	private static void turnEnemy(@Nonnull FightInfo fight, @Nonnull Consumer<FightingCharacter> endCallback) {
-		turnCharacter(fight, fight.getPlayerFight().getEnemy(), fight.getPlayerFighter(),
-			v -> turnPlayer(fight, endCallback), endCallback);
-	}
+		@Nonnull
+		private final Battle fight;
+		@Nonnull
+		private final Consumer<FightingCharacter> endCallback;
+		private FightingCharacter self;
+		private FightingCharacter foe;
+		private boolean scheduled = false;
+		private boolean running = false;
+
+		TurnScheduler(@Nonnull Battle fight, @Nonnull Consumer<FightingCharacter> endCallback) {
+			this.fight = fight;
+			this.endCallback = endCallback;
+		}
 
-	public static void turnCharacter(@Nonnull FightInfo fight, @Nonnull FightingCharacter self, @Nonnull FightingCharacter foe, @Nonnull Consumer<Void> callback, @Nonnull Consumer<FightingCharacter> endCallback) {
-		self.turn(fight, speed -> {
-			self.takeTime(speed);
-			// Take away own time
+		void schedule(@Nonnull FightingCharacter nextSelf, @Nonnull FightingCharacter nextFoe) {
+			synchronized (this) {
+				this.self = nextSelf;
+				this.foe = nextFoe;
+				this.scheduled = true;
+				if (this.running)
+					return;
+				this.running = true;
+			}
+			// Leaves the turn to the loop if it is already running further up the stack or on
+			// another thread
+
+			while (true) {
+				FightingCharacter turnSelf;
+				FightingCharacter turnFoe;
+				synchronized (this) {
+					if (!this.scheduled) {
+						this.running = false;
+						return;
+					}
+
+					this.scheduled = false;
+					turnSelf = this.self;
+					turnFoe = this.foe;
+				}
+
+				turnSelf.turn(this.fight, speed -> afterTurn(turnSelf, turnFoe, speed));
+			}
+		}
 
-			self.addTime((float) Math.abs(Math.ceil(foe.getTime())));
-			foe.setTime(0f);
-			// Adds foe's "borrowed" time to self
+		private void afterTurn(@Nonnull FightingCharacter turnSelf, @Nonnull FightingCharacter turnFoe, float speed) {
+			switch (resolveTurn(turnSelf, turnFoe, speed)) {
+				case SURRENDER:
+					this.endCallback.accept(turnFoe);
+					break;
 
-			if (speed == -1f) {
-				endCallback.accept(foe);
-				return;
-			}
-			// Surrender
+				case VICTORY:
+					this.endCallback.accept(turnSelf);
+					break;
 
-			if (foe.getHp() <= 0) {
-				endCallback.accept(self);
-				return;
-			}
-			// Victory
+				case AGAIN:
+					schedule(turnSelf, turnFoe);
+					break;
 
-			if (self.getTime() > 0) {
-				turnCharacter(fight, self, foe, callback, endCallback);
-				return;
+				case FOE:
+					schedule(turnFoe, turnSelf);
+					break;
 			}
-			// Have the turn again if they have remaining time
+		}
 
-			foe.setTime(1f);
-			callback.accept(null);
-			// Give the foe a turn
-		});
 	}
 
-	public static String trimFeed(StringBuilder feed, int lines) {
-		if (feed.toString().split("\n").length > lines) {
-			int index = feed.lastIndexOf("\n");
-			for (int i = 0; i < lines; i++) {
-				int indexChk = feed.lastIndexOf("\n", index - 1);
-				if (indexChk == -1)
-					break;
+	/**
+	 * Applies the time rules after a character has taken a turn that took the given
+	 * speed (or -1 if they surrendered).
+	 *
+	 * @return who's next, or how the fight ended
+	 */
+	@Nonnull
+	static TurnResult resolveTurn(@Nonnull FightingCharacter self, @Nonnull FightingCharacter foe, float speed) {
+		self.takeTime(speed);
+		// Take away own time
 
-				index = indexChk;
-			}
+		self.addTime((float) Math.abs(Math.ceil(foe.getTime())));
+		foe.setTime(0f);
+		// Adds foe's "borrowed" time to self
 
-			char[] chars = new char[feed.length() - 1 - index];
-			feed.getChars(index + 1, feed.length(), chars, 0);
+		if (speed == -1f)
+			return TurnResult.SURRENDER;
 
-			return new String(chars);
+		if (foe.getHp() <= 0)
+			return TurnResult.VICTORY;
 
-		}
+		if (self.getTime() > 0)
+			return TurnResult.AGAIN;
+		// Have the turn again if they have remaining time
 
-		return feed.toString();
+		foe.setTime(1f);
+		return TurnResult.FOE;
+		// Give the foe a turn
 	}
 
-	public static MessageEmbed getVictoryStatus(Enemy enemy, StringBuilder feed, Item drop) {
+	public static MessageEmbed getVictoryStatus(Enemy enemy, CombatFeed feed, Item drop) {
 		EmbedBuilder builder = new EmbedBuilder();
 
-		String feedString = trimFeed(feed, 4);
+		String feedString = feed.getLastLines(4);
 
 		builder.setColor(Constants.GREEN);
 		builder.setThumbnail(enemy.getInfo().getImageUrl());
@@ -164,6 +227,187 @@ class Combat {
 		return builder.build();
 	}
 
+	/**
+	 * The combat feed of a fight. Actions are recorded as typed events and are only
+	 * turned into text when the feed gets displayed or saved, so recording them
+	 * allocates nothing. Only the last {@value #CAPACITY} events (one per line) are
+	 * kept, in a ring buffer of parallel arrays, as that's all that ever gets displayed
+	 * or saved.
+	 */
+	public static final class CombatFeed {
+
+		public enum FeedEvent {
+			ATTACK,
+			CRITICAL,
+			DODGE,
+			GUARD,
+			ITEM,
+			HEAL,
+			EFFECT,
+			TEXT
+		}
+
+		public static final int CAPACITY = 6;
+
+		@Nonnull
+		private final FeedEvent[] events = new FeedEvent[CAPACITY];
+		@Nonnull
+		private final boolean[] friendly = new boolean[CAPACITY];
+		@Nonnull
+		private final String[] actors = new String[CAPACITY];
+		@Nonnull
+		private final String[] objects = new String[CAPACITY];
+		// The target of an attack, the name of an item or an effect or the text itself
+		@Nonnull
+		private final int[] values = new int[CAPACITY];
+		private int next = 0;
+		private int size = 0;
+
+		private void record(@Nonnull FeedEvent event, boolean isFriendly, @Nullable String actor, @Nonnull String object, int value) {
+			this.events[this.next] = event;
+			this.friendly[this.next] = isFriendly;
+			this.actors[this.next] = actor;
+			this.objects[this.next] = object;
+			this.values[this.next] = value;
+			this.next = (this.next + 1) % CAPACITY;
+			if (this.size < CAPACITY)
+				this.size++;
+			// Overwrites the oldest event once full
+		}
+
+		public void attack(boolean isFriendly, @Nonnull String attacker, @Nonnull String target, int damage, boolean critical) {
+			record(critical ? FeedEvent.CRITICAL : FeedEvent.ATTACK, isFriendly, attacker, target, damage);
+		}
+
+		public void dodge(boolean isFriendly, @Nonnull String attacker, @Nonnull String target) {
+			record(FeedEvent.DODGE, isFriendly, attacker, target, 0);
+		}
+
+		public void guard(@Nonnull String player) {
+			record(FeedEvent.GUARD, true, player, "", 0);
+		}
+
+		public void item(@Nonnull String player, @Nonnull String item) {
+			record(FeedEvent.ITEM, true, player, item, 0);
+		}
+
+		/**
+		 * @param hpGain
+		 *            the HP the item has restored, 0 if the player was already at full
+		 *            health
+		 */
+		public void heal(@Nonnull String player, @Nonnull String item, int hpGain) {
+			record(FeedEvent.HEAL, true, player, item, hpGain);
+		}
+
+		public void effect(@Nonnull String target, @Nonnull String effect, int hpLoss) {
+			record(FeedEvent.EFFECT, false, target, effect, hpLoss);
+		}
+
+		/**
+		 * Records lines of text as they are. Used for the messages of battle items and
+		 * special enemies, and for feeds loaded from a save.
+		 */
+		public void text(@Nonnull String text) {
+			int start = 0;
+			int end;
+			while ((end = text.indexOf('\n', start)) != -1) {
+				record(FeedEvent.TEXT, false, null, text.substring(start, end), 0);
+				start = end + 1;
+			}
+
+			if (start < text.length())
+				record(FeedEvent.TEXT, false, null, text.substring(start), 0);
+		}
+
+		/**
+		 * @param count
+		 *            the maximum number of lines to return
+		 * @return the last lines of the feed, each followed by a line break
+		 */
+		@Nonnull
+		public String getLastLines(int count) {
+			StringBuilder builder = new StringBuilder();
+			for (int i = this.next - Math.min(this.size, count); i < this.next; i++)
+				render(Math.floorMod(i, CAPACITY), builder);
+
+			return builder.toString();
+		}
+
+		private void render(int index, @Nonnull StringBuilder builder) {
+			String actor = this.actors[index];
+			String object = this.objects[index];
+			String sign = this.friendly[index] ? "+ " : "- ";
+			switch (this.events[index]) {
+				case ATTACK:
+				case CRITICAL:
+					builder.append(sign).append(actor).append(" attacks ").append(object).append(". ");
+					builder.append(object).append(" loses ").append(this.values[index]).append(" HP");
+					if (this.events[index] == FeedEvent.CRITICAL)
+						builder.append(" [CRITICAL]");
+					builder.append('.');
+					break;
+
+				case DODGE:
+					builder.append(sign).append(actor).append(" attacks ").append(object).append(". ");
+					builder.append(object).append(" dodges ").append(actor).append("'s attack.");
+					break;
+
+				case GUARD:
+					builder.append("+ ").append(actor).append(" raises their guard.");
+					break;
+
+				case ITEM:
+					builder.append("+ ").append(actor).append(" uses the ").append(object).append('.');
+					break;
+
+				case HEAL:
+					builder.append("+ ").append(actor).append(" consumes a ").append(object).append(". ");
+					if (this.values[index] == 0) {
+						builder.append("It doesn't do much as ").append(actor).append(" was already at full health.");
+					} else {
+						builder.append(actor).append(" gained ").append(this.values[index]).append(" HP.");
+					}
+					break;
+
+				case EFFECT:
+					builder.append(actor)
+							.append(" lost ")
+							.append(this.values[index])
+							.append(" HP due to ")
+							.append(object)
+							.append('!');
+					break;
+
+				case TEXT:
+					builder.append(object);
+					break;
+			}
+
+			builder.append('\n');
+		}
+
+		public boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void copyFrom(@Nonnull CombatFeed feed) {
+			System.arraycopy(feed.events, 0, this.events, 0, CAPACITY);
+			System.arraycopy(feed.friendly, 0, this.friendly, 0, CAPACITY);
+			System.arraycopy(feed.actors, 0, this.actors, 0, CAPACITY);
+			System.arraycopy(feed.objects, 0, this.objects, 0, CAPACITY);
+			System.arraycopy(feed.values, 0, this.values, 0, CAPACITY);
+			this.next = feed.next;
+			this.size = feed.size;
+		}
+
+		@Override
+		public String toString() {
+			return getLastLines(CAPACITY);
+		}
+
+	}
+
 	public abstract static class FightingCharacter implements NamedObject, AttackDefenseCharacter, ObjectWithSpeed {
 
 		private float time = 0f;
@@ -178,7 +422,7 @@ class Combat {
 
 		public abstract int getMaxHp();
 
-		public abstract void turn(FightInfo fight, Consumer<Float> callback);
+		public abstract void turn(Battle fight, Consumer<Float> callback);
 
 		public float getTime() {
 			return this.time;
@@ -207,10 +451,7 @@ class Combat {
 		public default void onTurn(TurnInfo turn) {
 			int hploss = Math.round(turn.getSelf().getMaxHp() * getHpLossPercentage());
 			turn.getSelf().decreaseHp(hploss);
-			turn.getFight()
-					.getPlayerFight()
-					.getFeed()
-					.append(turn.getSelf().getName() + " lost " + hploss + " HP due to " + getName() + "! ");
+			turn.getFight().getPlayerFight().getFeed().effect(turn.getSelf().getName(), getName(), hploss);
 		}
 
 	}
@@ -8,9 +8,7 @@ import com.github.markozajc.lithium.utilities.dialogs.waiter.ChoiceDialog;
 import com.github.markozajc.lrpg.game.Enemies.BossDatabase;
 import com.github.markozajc.lrpg.game.Enemies.RegionDatabase;
 import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
-import com.github.markozajc.lrpg.game.Items.ArmorItem;
 import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
-import com.github.markozajc.lrpg.game.Items.WeaponItem;
 import com.github.markozajc.lrpg.game.Statuses.DungeonInfo;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
 import com.github.markozajc.lrpg.game.Statuses.GameInfo;
@@ -21,46 +19,68 @@ public class Dungeon {
 
 	public static final int TURN_HEAL = 1;
 
-	public static void death(GameInfo game) {
-		game.getPlayer().setArmor(new ArmorItem(ArmorDatabase.NAKED, 0));
-		game.getPlayer().setWeapon(new WeaponItem(WeaponDatabase.FISTS, 0));
-		game.getPlayer().removePlayerDungeon();
+	public static void death(Player player) {
+		player.setArmor(Utilities.getArmorItem(ArmorDatabase.NAKED, 0));
+		player.setWeapon(Utilities.getWeaponItem(WeaponDatabase.FISTS, 0));
+		player.removePlayerDungeon();
 	}
 
 	@Nullable
 	public static BossDatabase getBoss(DungeonInfo dungeon) {
-		RegionDatabase region = dungeon.getPlayerDungeon().getRegion(dungeon.getPlayer().getXp());
-		if (!region.equals(dungeon.getPlayerDungeon().getLastRegionBoss())) {
+		return getBoss(dungeon.getPlayer());
+	}
+
+	@Nullable
+	public static BossDatabase getBoss(Player player) {
+		RegionDatabase region = player.getPlayerDungeon().getRegion(player.getXp());
+		if (!region.equals(player.getPlayerDungeon().getLastRegionBoss())) {
 			// Region is guaranteed to be at least PRISON at this point
 			return RegionDatabase.values()[region.ordinal() - 1].getBoss();
 		}
 		return null;
 	}
 
+	/**
+	 * Raises the dungeon's level mark if the player has leveled up since, keeping the
+	 * same percentage of their (now higher) maximum HP.
+	 *
+	 * @return whether the player has leveled up
+	 */
+	static boolean levelUp(Player player) {
+		int level = player.getLevel();
+		if (level <= player.getPlayerDungeon().getLevelMark())
+			return false;
+
+		player.getPlayerDungeon().setLevelMark(level);
+		float healthPercentage = player.getPlayerDungeon().getHp()
+				/ (float) Utilities.CALCULATE_MAX_HEALTH.applyAsInt(level - 1);
+		player.getPlayerDungeon().setHp(Math.round(player.getMaxHp() * healthPercentage), player.getMaxHp());
+		return true;
+	}
+
 	public static void displayDungeon(@Nonnull DungeonInfo dungeon) {
+		dungeon.markDirty();
+
 		if (dungeon.getPlayerDungeon().getHp() == 0) {
 			Assets.DEATH_PREPARED.generate(dungeon).display(dungeon.getChannel());
-			death(dungeon);
-			Utilities.sleep(4000);
-			Castle.displayCastle(new GameInfo(dungeon));
+			death(dungeon.getPlayer());
+			Utilities.later(dungeon, 4000, () -> Castle.displayCastle(new GameInfo(dungeon)));
 			return;
 		}
 		// Death check
 
-		int level = dungeon.getPlayer().getLevel();
-		if (level > dungeon.getPlayerDungeon().getLevelMark()) {
-			dungeon.getPlayerDungeon().setLevelMark(level);
+		if (levelUp(dungeon.getPlayer())) {
 			Assets.NEXT_LEVEL_PREPARED.generate(dungeon.getPlayerDungeon().getLevelMark())
 					.display(dungeon.getChannel());
-			float healthPercentage = dungeon.getPlayerDungeon().getHp()
-					/ (float) Utilities.CALCULATE_MAX_HEALTH.applyAsInt(dungeon.getPlayerDungeon().getLevelMark() - 1);
-			dungeon.getPlayerDungeon()
-					.setHp(Math.round(dungeon.getPlayer().getMaxHp() * healthPercentage),
-						dungeon.getPlayer().getMaxHp());
-			Utilities.sleep(1500);
+			Utilities.later(dungeon, 1500, () -> displayStatus(dungeon));
+			return;
 		}
 		// Level-up check
 
+		displayStatus(dungeon);
+	}
+
+	private static void displayStatus(@Nonnull DungeonInfo dungeon) {
 		if (dungeon.getPlayerDungeon().getPlayerFight() == null) {
 			// If player isn't currently fighting an enemy (resumed from old session)
 
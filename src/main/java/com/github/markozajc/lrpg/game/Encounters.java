@@ -1,6 +1,7 @@
 package com.github.markozajc.lrpg.game;
 
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
@@ -20,6 +21,7 @@ import com.github.markozajc.lrpg.game.Items.UsableItemDatabase;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithReputation;
 import com.github.markozajc.lrpg.game.Statuses.DungeonInfo;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
+import com.github.markozajc.lrpg.game.Utilities.ReputationBands;
 
 import net.dv8tion.jda.core.EmbedBuilder;
 
@@ -30,7 +32,7 @@ class Encounters {
 	public enum EncounterType implements ObjectWithReputation {
 		MERCHANT(dungeon -> {
 			Item item = Utilities.getRandomItem(dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp()),
-				1.5f, Assets.ARMOR_PACK.get(), Assets.WEAPONS_PACK.get(), Assets.HEALIES_PACK);
+				Assets.MERCHANT_PACKS);
 
 			if (item != null) {
 				long price = Utilities.HALF_UP_OR_DOWN_RANDOMIZE.applyAsLong(
@@ -67,7 +69,7 @@ class Encounters {
 			} else {
 				new BooleanDialog(dungeon.getContext(), Assets.ABANDONED_SHOP_PREPARED.generate(dungeon), d -> {
 					if (d) {
-						if (BotUtils.getRandom().nextBoolean()) {
+						if (Utilities.getRandom().nextBoolean()) {
 							int gold = Utilities.getRandomGold(dungeon.getPlayer(), 0.2f);
 							dungeon.getChannel()
 									.sendMessage(BotUtils.buildEmbed(
@@ -109,9 +111,8 @@ class Encounters {
 						dungeon.getPlayerDungeon().getStatistics().chestOpened();
 
 						Item item = Utilities.getRandomItemWithFallback(
-							dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp()), 2f,
-							Assets.ALL_NO_RARITY_PACK, Assets.WEAPONS_PACK.get(), Assets.ARMOR_PACK.get(),
-							Assets.HEALIES_PACK);
+							dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp()), Assets.CHEST_PACKS,
+							Assets.ALL_NO_RARITY_PACK);
 
 						if (item != null) {
 							// If the chest has an item
@@ -155,8 +156,8 @@ class Encounters {
 
 		LOOT(dungeon -> {
 			Item item = Utilities.getRandomItemWithFallback(
-				dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp()), .8f, Assets.ITEMS_PACK,
-				Assets.HEALIES_PACK);
+				dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp()), Assets.LOOT_PACKS,
+				Assets.ITEMS_PACK);
 
 			if (item != null) {
 				// If found an item
@@ -187,7 +188,7 @@ class Encounters {
 				// If the player says yes
 				dungeon.getPlayerDungeon().getStatistics().mysteriousBookRead();
 
-				if (BotUtils.getRandom().nextBoolean()) {
+				if (Utilities.getRandom().nextBoolean()) {
 					// If the book didn't hurt the player
 
 					if (Utilities.getChance(0.2f)) {
@@ -259,12 +260,9 @@ class Encounters {
 
 						new BooleanDialog(dungeon.getContext(), Assets.RESURRECTION_CONFIRM_MESSAGE, confirm -> {
 							if (confirm) {
-								for (MessageDialog message : Assets.getResurrectionMessages()) {
-									message.display(dungeon.getChannel());
-									Utilities.sleep(4000);
-								}
-
-								Enemies.fightEnemy(new FightInfo(dungeon, RegionDatabase.HELL.getBoss().getEnemy()));
+								Utilities.displayPaced(Assets.getResurrectionMessages(), dungeon, 4000,
+									() -> Enemies.fightEnemy(
+										new FightInfo(dungeon, RegionDatabase.HELL.getBoss().getEnemy())));
 								// Fights Yog
 							} else {
 								Dungeon.displayDungeon(dungeon);
@@ -320,13 +318,51 @@ class Encounters {
 	//////////////////////////////////////////////////////////////////////////////////////
 	// ENEMIES
 	//////////////////////////////////////////////////////////////////////////////////////
+	/**
+	 * The enemies of each region (indexed by the region's ordinal), sorted by their
+	 * reputation.
+	 */
+	private static final class SpawnTables {
+
+		static final EnemyDatabase[][] ENEMIES;
+		static final ReputationBands[] BANDS;
+
+		static {
+			RegionDatabase[] regions = RegionDatabase.values();
+			ENEMIES = new EnemyDatabase[regions.length][];
+			BANDS = new ReputationBands[regions.length];
+			for (RegionDatabase region : regions) {
+				EnemyDatabase[] enemies = Arrays.stream(EnemyDatabase.values())
+						.filter(e -> Utilities.GET_REGION.apply(e.getReputation()) == region)
+						.sorted(Comparator.comparingLong(EnemyDatabase::getReputation))
+						.toArray(EnemyDatabase[]::new);
+
+				ENEMIES[region.ordinal()] = enemies;
+				BANDS[region.ordinal()] = ReputationBands.of(enemies);
+			}
+		}
+
+		private SpawnTables() {}
+
+	}
+
 	@Nonnull
 	public static Enemy getRandomEnemy(DungeonInfo dungeon) {
-		return new Enemy(Utilities.getRandomMustMatch(EnemyDatabase.values(), e -> {
-			long reputation = dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp());
-			return e.getReputation() <= reputation
-					&& Utilities.GET_REGION.apply(reputation).equals(Utilities.GET_REGION.apply(e.getReputation()));
-		}));
+		return new Enemy(getRandomEnemy(dungeon.getPlayerDungeon().getReputation(dungeon.getPlayer().getXp())));
+	}
+
+	/**
+	 * @return a random enemy of the reputation's region that doesn't require more
+	 *         reputation
+	 */
+	@Nonnull
+	public static EnemyDatabase getRandomEnemy(long reputation) {
+		int region = Utilities.GET_REGION.apply(reputation).ordinal();
+		int available = SpawnTables.BANDS[region].countAtMost(reputation);
+		if (available == 0)
+			throw Assets.UTILITIES_EMPTY_CONTAINER_EXCEPTION;
+
+		return SpawnTables.ENEMIES[region][Utilities.getRandom().nextInt(available)];
 	}
 
 }
@@ -7,6 +7,7 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.github.markozajc.lrpg.game.Combat.Battle;
 import com.github.markozajc.lrpg.game.Combat.FightingCharacter;
 import com.github.markozajc.lrpg.game.Items.Item;
 import com.github.markozajc.lrpg.game.Items.ItemRarityPack;
@@ -18,6 +19,7 @@ import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithSpeed;
 import com.github.markozajc.lrpg.game.LRpgExposed.PicturableObject;
 import com.github.markozajc.lrpg.game.LRpgExposed.RangedValue;
 import com.github.markozajc.lrpg.game.LRpgExposed.RangedValueObject;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon;
 import com.github.markozajc.lrpg.game.Statuses.DungeonInfo;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
 
@@ -61,7 +63,7 @@ public class Enemies {
 		}
 
 		@Override
-		public void turn(FightInfo fight, Consumer<Float> callback) {
+		public void turn(Battle fight, Consumer<Float> callback) {
 			callback.accept(Combat.hitTurn(this, fight.getPlayerFighter(), fight.getPlayerFight().getGuard(), fight));
 		}
 
@@ -223,7 +225,7 @@ public class Enemies {
 		GOO(() -> new Enemy(BossInformationDatabase.GOO) {
 
 			private int pump = 0;
-			private FightInfo fight = null;
+			private Battle fight = null;
 
 			@SuppressWarnings("null")
 			@Override
@@ -241,7 +243,7 @@ public class Enemies {
 			}
 
 			@Override
-			public void turn(FightInfo fight, Consumer<Float> callback) {
+			public void turn(Battle fight, Consumer<Float> callback) {
 
 				if (this.fight == null)
 					this.fight = fight;
@@ -249,7 +251,7 @@ public class Enemies {
 				this.pump++;
 
 				if (this.pump == Assets.GOO_PUMP_REQUIRED) {
-					fight.getPlayerFight().getFeed().append(Assets.GOO_PUMP_TEXT);
+					fight.getPlayerFight().getFeed().text(Assets.GOO_PUMP_TEXT);
 					this.pump++;
 					callback.accept(3f);
 				} else {
@@ -458,44 +460,62 @@ public class Enemies {
 	@SuppressWarnings("null")
 	public static void fightEnemy(@Nonnull FightInfo fight) {
 		Combat.fightEnemy(fight, (win, feed) -> {
+			Enemy enemy = fight.getPlayerFight().getEnemy();
+			Item item = endFight(fight.getPlayer(), win);
 			if (win) {
-				Item item = null;
-				ItemRarityPack drop = fight.getPlayerFight().getEnemy().getInfo().getItemDrops();
-				if (drop != null && Utilities.getChance(drop.getRarity()))
-					item = drop.maybeGetItem(fight.getPlayerDungeon().getReputation(fight.getPlayer().getXp()));
-
-				if (item != null)
-					fight.getPlayer().getInventory().addItem(item, 1);
-
-				fight.getPlayerDungeon().getStatistics().enemySlain();
-				fight.getPlayer()
-					.setGold(fight.getPlayer().getGold() + fight.getPlayerFight().getEnemy().getInfo().getGoldDrop());
-				fight.getPlayer()
-					.setXp(fight.getPlayer().getXp() + fight.getPlayerFight().getEnemy().getInfo().getXpDrop());
-
-				fight.getChannel()
-					.sendMessage(
-						Combat.getVictoryStatus(fight.getPlayerFight().getEnemy(), feed, item == null ? null : item))
-					.queue();
-
-				if (fight.getPlayerFight().getEnemy().getInfo().isBoss()) {
-					RegionDatabase region = fight.getPlayerDungeon().getRegion(fight.getPlayer().getXp());
-					fight.getPlayerDungeon().setLastRegionBoss(region);
-					Assets.NEXT_REGION_PREPARED.generate(region).display(fight.getChannel());
-				}
+				fight.getChannel().sendMessage(Combat.getVictoryStatus(enemy, feed, item)).queue();
 
-				Utilities.sleep(1000);
-				fight.getPlayerDungeon()
-					.setHp(fight.getPlayerDungeon().getHp() + Dungeon.TURN_HEAL, fight.getPlayer().getMaxHp());
+				if (enemy.getInfo().isBoss())
+					Assets.NEXT_REGION_PREPARED.generate(fight.getPlayerDungeon().getLastRegionBoss())
+							.display(fight.getChannel());
+			}
 
+			DungeonInfo dungeon = new DungeonInfo(fight);
+			if (win) {
+				Utilities.later(dungeon, 1000, () -> Dungeon.displayDungeon(dungeon));
 			} else {
-				fight.getPlayerDungeon().setHp(0, fight.getPlayer().getMaxHp());
+				Dungeon.displayDungeon(dungeon);
 			}
-
-			fight.getPlayerDungeon().removePlayerFight();
-			fight.getPlayerDungeon().addStep();
-			Dungeon.displayDungeon(new DungeonInfo(fight));
+			// Gives the player a moment to read the victory status
 		});
 	}
 
+	/**
+	 * Ends the player's current fight. If they have won, they get the enemy's rewards and
+	 * are healed for a turn, otherwise their HP drops to zero.
+	 *
+	 * @return the item the enemy has dropped, if any
+	 */
+	@Nullable
+	static Item endFight(@Nonnull Player player, boolean win) {
+		PlayerDungeon dungeon = player.getPlayerDungeon();
+		EnemyInformation info = dungeon.getPlayerFight().getEnemy().getInfo();
+
+		Item item = null;
+		if (win) {
+			ItemRarityPack drop = info.getItemDrops();
+			if (drop != null && Utilities.getChance(drop.getRarity()))
+				item = drop.maybeGetItem(dungeon.getReputation(player.getXp()));
+
+			if (item != null)
+				player.getInventory().addItem(item, 1);
+
+			dungeon.getStatistics().enemySlain();
+			player.setGold(player.getGold() + info.getGoldDrop());
+			player.setXp(player.getXp() + info.getXpDrop());
+
+			if (info.isBoss())
+				dungeon.setLastRegionBoss(dungeon.getRegion(player.getXp()));
+
+			dungeon.setHp(dungeon.getHp() + Dungeon.TURN_HEAL, player.getMaxHp());
+
+		} else {
+			dungeon.setHp(0, player.getMaxHp());
+		}
+
+		dungeon.removePlayerFight();
+		dungeon.addStep();
+		return item;
+	}
+
 }
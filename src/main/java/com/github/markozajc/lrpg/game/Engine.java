@@ -0,0 +1,213 @@
+package com.github.markozajc.lrpg.game;
+
+import javax.annotation.Nonnull;
+
+import com.github.markozajc.lrpg.game.Combat.Battle;
+import com.github.markozajc.lrpg.game.Combat.CombatFeed;
+import com.github.markozajc.lrpg.game.Combat.FightingCharacter;
+import com.github.markozajc.lrpg.game.Enemies.BossDatabase;
+import com.github.markozajc.lrpg.game.Enemies.Enemy;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerFight;
+import com.github.markozajc.lrpg.game.Player.PlayerFighter;
+
+/**
+ * The rules of the dungeon and its fights, without any of the Discord dialogs. The
+ * fights played through Discord use them from {@link PlayerFighter}, where a dialog
+ * picks the {@link Action}. A {@link Session} plays them headlessly - actions go in,
+ * and the {@link CombatFeed} events and the {@link Outcome} come out, so the game can
+ * be driven in-process (eg. for load testing and profiling).
+ */
+public class Engine {
+
+	private Engine() {}
+
+	public enum Action {
+		HIT,
+		GUARD,
+		SURRENDER
+	}
+
+	public enum Outcome {
+		/**
+		 * The fight goes on and it's the player's turn.
+		 */
+		PLAYER_TURN,
+		/**
+		 * The player has won the fight and has been rewarded.
+		 */
+		VICTORY,
+		/**
+		 * The player has lost (or surrendered) the fight and has died.
+		 */
+		DEFEAT
+	}
+
+	/**
+	 * Performs the player's action.
+	 *
+	 * @return the speed of the action, 0 if it has taken no time or -1 if the player has
+	 *         surrendered
+	 */
+	static float perform(@Nonnull Battle battle, @Nonnull Action action) {
+		PlayerFight fight = battle.getPlayerFight();
+		switch (action) {
+			case HIT:
+				return Combat.hitTurn(battle.getPlayerFighter(), fight.getEnemy(), 0, battle,
+					Math.round(battle.getPlayer().getLevel() * .1f));
+
+			case GUARD:
+				if (fight.getGuard() >= Combat.MAX_GUARD)
+					return 0f;
+
+				fight.getFeed().guard(battle.getPlayerFighter().getName());
+				fight.setGuard(fight.getGuard() + 2);
+				return 1f;
+
+			case SURRENDER:
+				return -1f;
+
+			default:
+				throw new IllegalArgumentException("Unknown action: " + action);
+		}
+	}
+
+	/**
+	 * A headless game of a single player. Exploring always leads to a fight (random
+	 * encounters need the player's input through dialogs, so they're left out). Enemy
+	 * turns are taken as soon as it's their turn, so every call returns with either the
+	 * player's turn or the end of the fight.
+	 */
+	public static final class Session implements Battle {
+
+		@Nonnull
+		private final Player player;
+		@Nonnull
+		private final PlayerFighter fighter;
+		private float enemySpeed;
+
+		public Session(@Nonnull Player player, @Nonnull String name) {
+			this.player = player;
+			this.fighter = new PlayerFighter(player, name);
+		}
+
+		/**
+		 * Explores the dungeon (entering it if the player isn't in it) and starts a fight
+		 * with its boss or a random enemy.
+		 *
+		 * @return {@link Outcome#PLAYER_TURN} unless the enemy has ended the fight with
+		 *         its first strike
+		 */
+		@Nonnull
+		public Outcome explore() {
+			this.player.createPlayerDungeon();
+			if (isFighting())
+				throw new IllegalStateException("The player is already in a fight.");
+
+			BossDatabase boss = Dungeon.getBoss(this.player);
+			Enemy enemy = boss != null ? boss.getEnemy()
+					: new Enemy(Encounters.getRandomEnemy(
+						this.player.getPlayerDungeon().getReputation(this.player.getXp())));
+			this.player.getPlayerDungeon().createPlayerFight(enemy);
+			this.fighter.addTime(1f);
+
+			if (boss == null && Utilities.getChance(.5f))
+				return run(enemy, this.fighter, takeEnemyTurn(enemy));
+			// If enemy struck first (only non-bosses) - 50%
+
+			return Outcome.PLAYER_TURN;
+		}
+
+		/**
+		 * Performs the player's action and takes the enemy's turns that follow it.
+		 */
+		@Nonnull
+		public Outcome act(@Nonnull Action action) {
+			if (!isFighting())
+				throw new IllegalStateException("The player isn't in a fight.");
+
+			return run(this.fighter, getPlayerFight().getEnemy(), perform(this, action));
+		}
+
+		@Nonnull
+		private Outcome run(@Nonnull FightingCharacter self, @Nonnull FightingCharacter foe, float speed) {
+			FightingCharacter turnSelf = self;
+			FightingCharacter turnFoe = foe;
+			float turnSpeed = speed;
+			while (true) {
+				switch (Combat.resolveTurn(turnSelf, turnFoe, turnSpeed)) {
+					case SURRENDER:
+						return end(turnFoe);
+
+					case VICTORY:
+						return end(turnSelf);
+
+					case FOE:
+						FightingCharacter previous = turnSelf;
+						turnSelf = turnFoe;
+						turnFoe = previous;
+						break;
+
+					case AGAIN:
+						break;
+				}
+
+				if (turnSelf == this.fighter)
+					return Outcome.PLAYER_TURN;
+
+				turnSpeed = takeEnemyTurn(turnSelf);
+			}
+		}
+
+		private float takeEnemyTurn(@Nonnull FightingCharacter enemy) {
+			enemy.turn(this, speed -> this.enemySpeed = speed.floatValue());
+			return this.enemySpeed;
+		}
+		// Enemies call back before their turn returns
+
+		@Nonnull
+		private Outcome end(@Nonnull FightingCharacter winner) {
+			boolean win = winner == this.fighter;
+			Enemies.endFight(this.player, win);
+
+			if (!win) {
+				Dungeon.death(this.player);
+				return Outcome.DEFEAT;
+			}
+
+			Dungeon.levelUp(this.player);
+			return Outcome.VICTORY;
+		}
+
+		public boolean isFighting() {
+			return this.player.getPlayerDungeon() != null && getPlayerFight() != null;
+		}
+
+		/**
+		 * @return the feed of the current fight, holding the events of its last turns
+		 */
+		@Nonnull
+		public CombatFeed getFeed() {
+			if (!isFighting())
+				throw new IllegalStateException("The player isn't in a fight.");
+
+			return getPlayerFight().getFeed();
+		}
+
+		@Override
+		public Player getPlayer() {
+			return this.player;
+		}
+
+		@Override
+		public PlayerFighter getPlayerFighter() {
+			return this.fighter;
+		}
+
+		@Override
+		public PlayerFight getPlayerFight() {
+			return this.player.getPlayerDungeon().getPlayerFight();
+		}
+
+	}
+
+}
@@ -1,8 +1,13 @@
 package com.github.markozajc.lrpg.game;
 
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 import java.util.function.BiConsumer;
@@ -32,10 +37,16 @@ import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithRarity;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithReputation;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithSpeed;
 import com.github.markozajc.lrpg.game.LRpgExposed.RangedValueObject;
+import com.github.markozajc.lrpg.game.Player.MutationListener;
 import com.github.markozajc.lrpg.game.Statuses.DungeonInfo;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
 import com.github.markozajc.lrpg.game.Statuses.GameInfo;
+import com.github.markozajc.lrpg.game.Utilities.RaritySampler;
+import com.github.markozajc.lrpg.game.Utilities.ReputationBands;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.MessageChannel;
@@ -158,15 +169,22 @@ public class Items {
 
 	}
 
+	/**
+	 * A piece of gear of a certain type and level. Gear is immutable and interned, so
+	 * there's only ever one instance of each type and level (obtained through
+	 * {@link Utilities#getWeaponItem(WeaponDatabase, int)} and
+	 * {@link Utilities#getArmorItem(ArmorDatabase, int)}), and it can be compared by
+	 * reference.
+	 */
 	public abstract static class GearItem<T extends GearDatabase> implements UsableItem, RangedValueObject {
 
 		public static final int MAX_GEAR_LEVEL = 5;
 		public static final float RARITY = .1f;
 
-		protected T type;
-		protected int level;
+		protected final T type;
+		protected final int level;
 
-		public GearItem(T type, int level) {
+		GearItem(T type, int level) {
 			this.type = type;
 			this.level = level;
 		}
@@ -177,10 +195,6 @@ public class Items {
 			return this.level;
 		}
 
-		public void setLevel(int level) {
-			this.level = level;
-		}
-
 		public T getType() {
 			return this.type;
 		}
@@ -202,23 +216,6 @@ public class Items {
 			return this.type.getEmote();
 		}
 
-		@Override
-		public int hashCode() {
-			return Objects.hash(this.type, this.level);
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			GearItem<?> other = (GearItem<?>) obj;
-			return Objects.equals(this.type, other.type) && this.level == other.level;
-		}
-
 		@Override
 		public final void use(GameInfo game, Consumer<Boolean> callback) {
 			if (game instanceof DungeonInfo) {
@@ -295,22 +292,24 @@ public class Items {
 			}
 		}
 
+		/**
+		 * Heals the player and records a heal event in the fight's feed, so unlike other
+		 * battle items, the text passed to the callback is not meant for the feed.
+		 */
 		@Override
 		default void use(FightInfo fight, Consumer<String> callback) {
-			if (fight.getPlayerDungeon().getHp() == fight.getPlayer().getMaxHp()) {
-				callback.accept(fight.getAuthor().getName() + " consumes a " + getName() + ". It doesn't do much as "
-						+ fight.getAuthor().getName() + " was already at full health.");
-
-			} else {
+			int hpGain = 0;
+			if (fight.getPlayerDungeon().getHp() != fight.getPlayer().getMaxHp()) {
 				fight.getPlayerDungeon().getStatistics().healieConsumed();
 				fight.getPlayerDungeon()
 						.setHp(fight.getPlayerDungeon().getHp() + getHealingValue(), fight.getPlayer().getMaxHp());
-
-				callback.accept(fight.getAuthor().getName() + " consumes a " + getName() + ". "
-						+ fight.getAuthor().getName() + " gained " + getHealingValue() + " HP.");
-
+				hpGain = getHealingValue();
 			}
+
+			fight.getPlayerFight().getFeed().heal(fight.getAuthor().getName(), getName(), hpGain);
+			callback.accept(getName());
 		}
+		// The item is consumed even if the player is already at full health
 	}
 
 	public enum UsableItemDatabase implements UsableItem {
@@ -359,11 +358,20 @@ public class Items {
 
 									callback.accept(false);
 								} else {
-									gear.setLevel(gear.getLevel() + 1);
+									int level = gear.getLevel() + 1;
+									if (gear instanceof WeaponItem) {
+										game.getPlayer()
+												.setWeapon(Utilities.getWeaponItem(((WeaponItem) gear).getType(), level));
+									} else {
+										game.getPlayer()
+												.setArmor(Utilities.getArmorItem(((ArmorItem) gear).getType(), level));
+									}
+									// Gear instances are shared, so upgrading swaps them instead of modifying them
+
 									game.getChannel()
 											.sendMessage(BotUtils.buildEmbed(Assets.UP_EMOTE + " You upgrade your **"
 													+ gear.getEmote() + " " + gear.getType().getName()
-													+ "** to level **" + gear.getLevel() + "**.",
+													+ "** to level **" + level + "**.",
 												Constants.GREEN))
 											.queue();
 									// Manually getting the name + emote to avoid the old level sneaking in
@@ -645,7 +653,7 @@ public class Items {
 			return "regular";
 		}
 
-		public WeaponItem(WeaponDatabase type, int upgrades) {
+		WeaponItem(WeaponDatabase type, int upgrades) {
 			super(type, upgrades);
 		}
 
@@ -700,7 +708,7 @@ public class Items {
 
 	public static class ArmorItem extends GearItem<ArmorDatabase> {
 
-		public ArmorItem(ArmorDatabase type, int upgrades) {
+		ArmorItem(ArmorDatabase type, int upgrades) {
 			super(type, upgrades);
 		}
 
@@ -948,58 +956,214 @@ public class Items {
 	//////////////////////////////////////////////////////////////////////////////////////
 	public static class Inventory {
 
-		private final List<ItemStack> items = new ArrayList<>();
+		@SuppressWarnings("unchecked")
+		private static final Class<? extends Item>[] STACKABLE_DATABASES = new Class[] {
+				ItemDatabase.class, HealingItemDatabase.class, UsableItemDatabase.class, BattleItemDatabase.class
+		};
+		private static final int[] STACKABLE_OFFSETS = new int[STACKABLE_DATABASES.length];
+		private static final int STACKABLE_SLOTS;
+		static {
+			int slots = 0;
+			for (int i = 0; i < STACKABLE_DATABASES.length; i++) {
+				STACKABLE_OFFSETS[i] = slots;
+				slots += STACKABLE_DATABASES[i].getEnumConstants().length;
+			}
+			STACKABLE_SLOTS = slots;
+		}
+		// Every database item gets its own slot, numbered by the database and its ordinal
+
+		private static final Item[] EMPTY_ITEMS = new Item[0];
+		private static final int[] EMPTY_QUANTITIES = new int[0];
+
+		// The items and their quantities, in the order they are displayed in
+		private Item[] items = EMPTY_ITEMS;
+		private int[] quantities = EMPTY_QUANTITIES;
+		private int size;
+		// Positions of database items (plus one) by their slot, allocated on first use
+		@Nullable
+		private int[] positions;
+		// Positions of gear, which is interned so it is looked up by reference, allocated on first use
+		@Nullable
+		private Map<Item, Integer> gearPositions;
+		@Nullable
+		private transient MutationListener listener;
+
+		void setMutationListener(@Nullable MutationListener listener) {
+			this.listener = listener;
+		}
 
 		public void addItemStack(ItemStack item) {
 			addItem(item.getItem(), item.getQuantity());
 		}
 
 		public void addItem(Item type, int quantity) {
-			ItemStack stack = getItemStack(type);
-			if (stack == null) {
-				this.items.add(new ItemStack(type, quantity));
+			int position = getPosition(type);
+			if (position < 0) {
+				if (this.size == this.items.length) {
+					int capacity = Math.max(4, this.size + (this.size >> 1));
+					this.items = Arrays.copyOf(this.items, capacity);
+					this.quantities = Arrays.copyOf(this.quantities, capacity);
+				}
+
+				position = this.size++;
+				this.items[position] = type;
+				this.quantities[position] = quantity;
+				setPosition(type, position);
+
 			} else {
-				stack.setQuantity(stack.getQuantity() + quantity);
+				this.quantities[position] += quantity;
 			}
+
+			if (this.listener != null)
+				this.listener.itemChanged(type, this.quantities[position]);
 		}
 
+		/**
+		 * Removes the whole stack if it holds the item's current quantity (as stacks
+		 * returned by {@link #getItems()} do), otherwise only its quantity.
+		 */
 		public boolean removeItemStack(ItemStack item) {
-			if (this.items.contains(item))
-				return this.items.remove(item);
+			int position = getPosition(item.getItem());
+			if (position >= 0 && (item.getQuantity() == this.quantities[position] || item.getQuantity() <= 0)) {
+				if (this.listener != null)
+					this.listener.itemChanged(item.getItem(), 0);
+
+				removeAt(position);
+				return true;
+			}
 
 			return removeItem(item.getItem(), item.getQuantity());
 		}
 
 		public boolean removeItem(Item type, int quantity) {
-			ItemStack stack = getItemStack(type);
+			int position = getPosition(type);
 
-			if (stack == null || stack.getQuantity() < quantity)
+			if (position < 0 || this.quantities[position] < quantity)
 				return false;
 
-			if (stack.getQuantity() - quantity == 0) {
-				this.items.remove(stack);
+			int remaining = this.quantities[position] - quantity;
+			if (remaining == 0) {
+				removeAt(position);
 
 			} else {
-				stack.setQuantity(stack.getQuantity() - quantity);
+				this.quantities[position] = remaining;
 			}
 
+			if (this.listener != null)
+				this.listener.itemChanged(type, remaining);
+
 			return true;
 		}
 
 		public int getQuantity(Item type) {
-			ItemStack stack = this.getItemStack(type);
-			if (stack == null)
+			int position = getPosition(type);
+			if (position < 0)
 				return 0;
-			return stack.getQuantity();
+			return this.quantities[position];
 		}
 
+		/**
+		 * @return a snapshot of the item's stack, changing its quantity doesn't change the
+		 *         inventory
+		 */
 		@Nullable
 		public ItemStack getItemStack(Item type) {
-			return this.items.stream().filter(is -> is.getItem().equals(type)).findAny().orElse(null);
+			int position = getPosition(type);
+			if (position < 0)
+				return null;
+			return new ItemStack(this.items[position], this.quantities[position]);
 		}
 
+		/**
+		 * @return an unmodifiable view of snapshots of the item stacks in display order.
+		 *         Items must be added and removed through the inventory itself
+		 */
 		public List<ItemStack> getItems() {
-			return this.items;
+			return new AbstractList<ItemStack>() {
+
+				@Override
+				public ItemStack get(int index) {
+					Objects.checkIndex(index, Inventory.this.size);
+					return new ItemStack(Inventory.this.items[index], Inventory.this.quantities[index]);
+				}
+
+				@Override
+				public int size() {
+					return Inventory.this.size;
+				}
+
+			};
+		}
+
+		@Nonnull
+		Inventory copy() {
+			Inventory copy = new Inventory();
+			copy.items = Arrays.copyOf(this.items, this.size);
+			copy.quantities = Arrays.copyOf(this.quantities, this.size);
+			copy.size = this.size;
+			if (this.positions != null)
+				copy.positions = this.positions.clone();
+			if (this.gearPositions != null)
+				copy.gearPositions = new HashMap<>(this.gearPositions);
+
+			return copy;
+		}
+
+		private static int getSlot(Item type) {
+			if (!(type instanceof Enum))
+				return -1;
+
+			Enum<?> constant = (Enum<?>) type;
+			for (int i = 0; i < STACKABLE_DATABASES.length; i++)
+				if (STACKABLE_DATABASES[i] == constant.getDeclaringClass())
+					return STACKABLE_OFFSETS[i] + constant.ordinal();
+
+			return -1;
+		}
+
+		private int getPosition(Item type) {
+			int slot = getSlot(type);
+			if (slot >= 0)
+				return this.positions == null ? -1 : this.positions[slot] - 1;
+
+			if (this.gearPositions == null)
+				return -1;
+
+			Integer position = this.gearPositions.get(type);
+			return position == null ? -1 : position;
+		}
+
+		private void setPosition(Item type, int position) {
+			int slot = getSlot(type);
+			if (slot >= 0) {
+				if (this.positions == null)
+					this.positions = new int[STACKABLE_SLOTS];
+				this.positions[slot] = position + 1;
+
+			} else {
+				if (this.gearPositions == null)
+					this.gearPositions = new HashMap<>();
+				this.gearPositions.put(type, position);
+			}
+		}
+
+		private void removeAt(int position) {
+			Item type = this.items[position];
+			int slot = getSlot(type);
+			if (slot >= 0) {
+				this.positions[slot] = 0;
+			} else {
+				this.gearPositions.remove(type);
+			}
+
+			this.size--;
+			for (int i = position; i < this.size; i++) {
+				this.items[i] = this.items[i + 1];
+				this.quantities[i] = this.quantities[i + 1];
+				setPosition(this.items[i], i);
+			}
+			// Shifts the following items back to keep the display order
+			this.items[this.size] = null;
 		}
 
 	}
@@ -1024,22 +1188,52 @@ public class Items {
 
 		public final Item[] items;
 		public final float rarity;
+		// The items sorted by their reputation, so the items available at a reputation are
+		// always the first ones
+		private final Item[] byReputation;
+		private final ReputationBands bands;
+		// Samplers of the first n available items, only if they're weighted
+		@Nullable
+		private final RaritySampler<Item>[] samplers;
 
+		@SuppressWarnings("unchecked")
 		public ItemRarityPack(float combinedRarity, Item... items) {
 			this.items = items;
 			this.rarity = combinedRarity;
+
+			this.byReputation = items.clone();
+			Arrays.sort(this.byReputation, Comparator.comparingLong(Item::getReputation));
+			this.bands = ReputationBands.of(this.byReputation);
+
+			if (combinedRarity < 0f) {
+				this.samplers = new RaritySampler[items.length + 1];
+				for (Item item : this.byReputation) {
+					int available = this.bands.countAtMost(item.getReputation());
+					if (this.samplers[available] != null)
+						continue;
+
+					long maxReputation = item.getReputation();
+					this.samplers[available] = new RaritySampler<>(Arrays.stream(items)
+							.filter(i -> i.getReputation() <= maxReputation)
+							.collect(Collectors.toList()), 1f);
+				}
+				// Keeps the original order so items of the same rarity are rolled in the same order
+
+			} else {
+				this.samplers = null;
+			}
 		}
 
 		@Nullable
 		public Item maybeGetItem(long reputation) {
-			List<Item> applicable = Utilities.getObjectsWithReputation(Arrays.asList(this.items), reputation);
-			if (applicable.isEmpty())
+			int available = this.bands.countBelow(reputation);
+			if (available == 0)
 				return null;
 
-			if (this.rarity < 0f)
-				return Utilities.getRandomValue(applicable);
+			if (this.samplers != null)
+				return this.samplers[available].sample();
 
-			return Utilities.getRandomElement(applicable);
+			return this.byReputation[Utilities.getRandom().nextInt(available)];
 		}
 
 		public Item[] getItems() {
@@ -1094,6 +1288,81 @@ public class Items {
 
 	}
 
+	public static class ItemStackTypeAdapter extends TypeAdapter<ItemStack> {
+
+		@Override
+		public void write(JsonWriter out, ItemStack stack) throws IOException {
+			out.beginObject();
+			out.name("item").value(Utilities.PACK_IDENTIFIABLE.apply(stack.getItem()));
+			out.name("quantity").value(stack.getQuantity());
+			out.endObject();
+		}
+
+		@Override
+		public ItemStack read(JsonReader in) throws IOException {
+			Item item = null;
+			int quantity = 0;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "item":
+						item = Utilities.UNPACK_ITEM.apply(in.nextString());
+						break;
+
+					case "quantity":
+						quantity = in.nextInt();
+						break;
+
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return new ItemStack(item, quantity);
+		}
+
+	}
+
+	public static class InventoryTypeAdapter extends TypeAdapter<Inventory> {
+
+		private static final ItemStackTypeAdapter ITEM_STACK_ADAPTER = new ItemStackTypeAdapter();
+
+		@Override
+		public void write(JsonWriter out, Inventory inventory) throws IOException {
+			out.beginObject();
+			out.name("items").beginArray();
+			for (ItemStack stack : inventory.getItems())
+				ITEM_STACK_ADAPTER.write(out, stack);
+			out.endArray();
+			out.endObject();
+		}
+
+		@Override
+		public Inventory read(JsonReader in) throws IOException {
+			Inventory inventory = new Inventory();
+
+			in.beginObject();
+			while (in.hasNext()) {
+				if (!in.nextName().equals("items")) {
+					in.skipValue();
+					continue;
+				}
+
+				in.beginArray();
+				while (in.hasNext())
+					inventory.addItemStack(ITEM_STACK_ADAPTER.read(in));
+				in.endArray();
+				// Merges any duplicate stacks left over from when gear was upgraded in place
+			}
+			in.endObject();
+
+			return inventory;
+		}
+
+	}
+
 	public static void openInventory(GameInfo game, Consumer<Item> itemPicked, Predicate<Item> canPick, Runnable exit) {
 		new InventoryChoiceDialog(game, (act, stack) -> {
 			if (act.equals(InventoryAction.EXIT)) {
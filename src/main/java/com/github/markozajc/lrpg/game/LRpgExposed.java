@@ -8,16 +8,19 @@ import org.slf4j.LoggerFactory;
 
 import com.github.markozajc.lithium.processes.context.CommandContext;
 import com.github.markozajc.lithium.utilities.dialogs.waiter.ChoiceDialog;
+import com.github.markozajc.lrpg.game.Combat.Battle;
 import com.github.markozajc.lrpg.game.Combat.FightingCharacter;
 import com.github.markozajc.lrpg.game.Enemies.EnemyInformation;
 import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
-import com.github.markozajc.lrpg.game.Items.ArmorItem;
 import com.github.markozajc.lrpg.game.Items.HealingItemDatabase;
+import com.github.markozajc.lrpg.game.Items.Inventory;
+import com.github.markozajc.lrpg.game.Items.InventoryTypeAdapter;
 import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.ItemStack;
+import com.github.markozajc.lrpg.game.Items.ItemStackTypeAdapter;
 import com.github.markozajc.lrpg.game.Items.UsableItemDatabase;
 import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
-import com.github.markozajc.lrpg.game.Items.WeaponItem;
-import com.github.markozajc.lrpg.game.Statuses.FightInfo;
+import com.github.markozajc.lrpg.game.Player.PlayerTypeAdapter;
 import com.github.markozajc.lrpg.game.Statuses.GameInfo;
 import com.google.gson.GsonBuilder;
 
@@ -119,13 +122,13 @@ public class LRpgExposed {
 		public static class TurnInfo {
 
 			@Nonnull
-			private final FightInfo fight;
+			private final Battle fight;
 			@Nonnull
 			private final FightingCharacter self;
 			@Nonnull
 			private final FightingCharacter foe;
 
-			public TurnInfo(@Nonnull FightInfo fight, @Nonnull FightingCharacter self,
+			public TurnInfo(@Nonnull Battle fight, @Nonnull FightingCharacter self,
 					@Nonnull FightingCharacter foe) {
 				this.fight = fight;
 				this.self = self;
@@ -133,7 +136,7 @@ public class LRpgExposed {
 			}
 
 			@Nonnull
-			public FightInfo getFight() {
+			public Battle getFight() {
 				return this.fight;
 			}
 
@@ -165,16 +168,16 @@ public class LRpgExposed {
 
 	@Nonnull
 	public static Player getStarterPlayer() {
-		Player player = new Player(25, 1L, new ArmorItem(ArmorDatabase.NAKED, 0),
-				new WeaponItem(WeaponDatabase.FISTS, 0));
+		Player player = new Player(25, 1L, Utilities.getArmorItem(ArmorDatabase.NAKED, 0),
+				Utilities.getWeaponItem(WeaponDatabase.FISTS, 0));
 
 		player.getInventory().addItem(HealingItemDatabase.FOOD_RATION, 3);
 		player.getInventory().addItem(HealingItemDatabase.POTION_HEALING, 1);
 		player.getInventory().addItem(UsableItemDatabase.SCROLL_UPGRADE, 1);
-		player.getInventory().addItem(new ArmorItem(ArmorDatabase.SHIRT, 0), 1);
-		player.getInventory().addItem(new WeaponItem(WeaponDatabase.SHORTSWORD, 0), 1);
-		player.getInventory().addItem(new WeaponItem(WeaponDatabase.AXE, 0), 1);
-		player.getInventory().addItem(new WeaponItem(WeaponDatabase.DAGGER, 1), 2);
+		player.getInventory().addItem(Utilities.getArmorItem(ArmorDatabase.SHIRT, 0), 1);
+		player.getInventory().addItem(Utilities.getWeaponItem(WeaponDatabase.SHORTSWORD, 0), 1);
+		player.getInventory().addItem(Utilities.getWeaponItem(WeaponDatabase.AXE, 0), 1);
+		player.getInventory().addItem(Utilities.getWeaponItem(WeaponDatabase.DAGGER, 1), 2);
 
 		return player;
 	}
@@ -194,7 +197,11 @@ public class LRpgExposed {
 		return gsonBuilder
 				.registerTypeHierarchyAdapter(Item.class, Utilities.getTypeAdapterFactory(Utilities.UNPACK_ITEM))
 				.registerTypeHierarchyAdapter(EnemyInformation.class,
-					Utilities.getTypeAdapterFactory(Utilities.UNPACK_ENEMY));
+					Utilities.getTypeAdapterFactory(Utilities.UNPACK_ENEMY))
+				.registerTypeAdapter(Player.class, new PlayerTypeAdapter().nullSafe())
+				.registerTypeAdapter(Inventory.class, new InventoryTypeAdapter().nullSafe())
+				.registerTypeAdapter(ItemStack.class, new ItemStackTypeAdapter().nullSafe());
+		// Players are streamed by hand-written adapters, so neither loading nor saving builds a tree
 	}
 
 }
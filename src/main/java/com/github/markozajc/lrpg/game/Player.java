@@ -1,22 +1,50 @@
 package com.github.markozajc.lrpg.game;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.github.markozajc.lithium.utilities.dialogs.waiter.BooleanDialog;
 import com.github.markozajc.lithium.utilities.dialogs.waiter.ChoiceDialog;
+import com.github.markozajc.lrpg.game.Combat.Battle;
+import com.github.markozajc.lrpg.game.Combat.CombatFeed;
 import com.github.markozajc.lrpg.game.Combat.FightingCharacter;
+import com.github.markozajc.lrpg.game.Enemies.BossInformationDatabase;
 import com.github.markozajc.lrpg.game.Enemies.Enemy;
+import com.github.markozajc.lrpg.game.Enemies.EnemyDatabase;
+import com.github.markozajc.lrpg.game.Enemies.EnemyInformation;
 import com.github.markozajc.lrpg.game.Enemies.RegionDatabase;
+import com.github.markozajc.lrpg.game.Engine.Action;
+import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
 import com.github.markozajc.lrpg.game.Items.ArmorItem;
 import com.github.markozajc.lrpg.game.Items.BattleItem;
+import com.github.markozajc.lrpg.game.Items.BattleItemDatabase;
+import com.github.markozajc.lrpg.game.Items.HealingItem;
+import com.github.markozajc.lrpg.game.Items.HealingItemDatabase;
 import com.github.markozajc.lrpg.game.Items.Inventory;
+import com.github.markozajc.lrpg.game.Items.InventoryTypeAdapter;
+import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.ItemDatabase;
+import com.github.markozajc.lrpg.game.Items.ItemStack;
 import com.github.markozajc.lrpg.game.Items.UsableItem;
+import com.github.markozajc.lrpg.game.Items.UsableItemDatabase;
+import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
 import com.github.markozajc.lrpg.game.Items.WeaponItem;
 import com.github.markozajc.lrpg.game.LRpgExposed.RangedValueObject;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerFight;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerStatistics;
 import com.github.markozajc.lrpg.game.Statuses.FightInfo;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 public class Player {
 
@@ -33,6 +61,9 @@ public class Player {
 	@Nonnull
 	private Inventory inventory = new Inventory();
 	private PlayerDungeon playerDungeon;
+	private long lastActive;
+	@Nullable
+	private transient MutationListener listener;
 
 	public Player(long gold, long xp, @Nonnull ArmorItem armor, @Nonnull WeaponItem weapon) {
 		this.gold = gold;
@@ -78,10 +109,16 @@ public class Player {
 
 	public void setArmor(@Nonnull ArmorItem armor) {
 		this.armor = armor;
+
+		if (this.listener != null)
+			this.listener.armorChanged(armor);
 	}
 
 	public void setGold(long gold) {
 		this.gold = gold;
+
+		if (this.listener != null)
+			this.listener.goldChanged(gold);
 	}
 
 	public int getMaxHp() {
@@ -90,23 +127,113 @@ public class Player {
 
 	public void setWeapon(@Nonnull WeaponItem weapon) {
 		this.weapon = weapon;
+
+		if (this.listener != null)
+			this.listener.weaponChanged(weapon);
 	}
 
 	public void setXp(long xp) {
 		this.xp = xp;
+
+		if (this.listener != null)
+			this.listener.xpChanged(xp);
 	}
 
 	public PlayerDungeon getPlayerDungeon() {
 		return this.playerDungeon;
 	}
 
+	/**
+	 * @return the time (in milliseconds since the epoch) this player was last active
+	 *         at or 0 if that is not known
+	 */
+	public long getLastActive() {
+		return this.lastActive;
+	}
+
+	public void setLastActive(long lastActive) {
+		this.lastActive = lastActive;
+	}
+
+	/**
+	 * @return a deep copy of this player, without the {@link MutationListener}
+	 */
+	@Nonnull
+	public Player copy() {
+		Player copy = new Player(this.gold, this.xp, this.armor, this.weapon);
+		copy.inventory = this.inventory.copy();
+		copy.playerDungeon = this.playerDungeon == null ? null : this.playerDungeon.copy();
+		copy.lastActive = this.lastActive;
+		return copy;
+		// Items are never modified, so they can be shared
+	}
+
 	public void createPlayerDungeon() {
-		if (this.playerDungeon == null)
+		if (this.playerDungeon == null) {
 			this.playerDungeon = new PlayerDungeon(this.getXp(), this.getMaxHp());
+			this.playerDungeon.listener = this.listener;
+
+			if (this.listener != null)
+				this.listener.dungeonEntered();
+		}
 	}
 
 	public void removePlayerDungeon() {
+		if (this.playerDungeon == null)
+			return;
+
 		this.playerDungeon = null;
+
+		if (this.listener != null)
+			this.listener.dungeonLeft();
+	}
+
+	@Nullable
+	public MutationListener getMutationListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Sets the listener that gets notified of every change to the player's gold, XP,
+	 * gear, inventory, health and step, and of entering and leaving the dungeon. The
+	 * listener is not persisted.
+	 */
+	public void setMutationListener(@Nullable MutationListener listener) {
+		this.listener = listener;
+		this.inventory.setMutationListener(listener);
+		if (this.playerDungeon != null)
+			this.playerDungeon.listener = listener;
+	}
+
+	public static interface MutationListener {
+
+		public void goldChanged(long gold);
+
+		public void xpChanged(long xp);
+
+		public void armorChanged(@Nonnull ArmorItem armor);
+
+		public void weaponChanged(@Nonnull WeaponItem weapon);
+
+		/**
+		 * @param quantity
+		 *            the new quantity of the item in the inventory ({@code 0} if the
+		 *            stack was removed)
+		 */
+		public void itemChanged(@Nonnull Item item, int quantity);
+
+		public void hpChanged(int hp);
+
+		public void stepChanged(int step);
+
+		/**
+		 * Called when a new dungeon is created for the player. The dungeon is created
+		 * from the player's XP and maximum health at the time.
+		 */
+		public void dungeonEntered();
+
+		public void dungeonLeft();
+
 	}
 
 	public static class PlayerDungeon {
@@ -125,6 +252,8 @@ public class Player {
 		private final PlayerStatistics statistics = new PlayerStatistics();
 		@Nonnegative
 		private final long reputationMark;
+		@Nullable
+		private transient MutationListener listener;
 
 		public PlayerDungeon(long xp, int maxHp) {
 			this.reputationMark = xp;
@@ -147,7 +276,16 @@ public class Player {
 
 		@Nonnegative
 		public int addStep() {
-			return this.step++;
+			int previous = this.step++;
+
+			if (this.listener != null)
+				this.listener.stepChanged(this.step);
+
+			return previous;
+		}
+
+		public void setStep(@Nonnegative int step) {
+			this.step = step;
 		}
 
 		@Nonnegative
@@ -175,6 +313,9 @@ public class Player {
 
 		public void setHp(int health, int maxHp) {
 			this.hp = Utilities.capAt(health, maxHp);
+
+			if (this.listener != null)
+				this.listener.hpChanged(this.hp);
 		}
 
 		public long getReputation(long xp) {
@@ -202,18 +343,34 @@ public class Player {
 			this.playerFight = null;
 		}
 
+		@Nonnull
+		PlayerDungeon copy() {
+			PlayerDungeon copy = new PlayerDungeon(this.reputationMark, this.hp);
+			copy.lastEncounter = this.lastEncounter;
+			copy.step = this.step;
+			copy.levelMark = this.levelMark;
+			copy.lastRegionBossDefeated = this.lastRegionBossDefeated;
+			copy.playerFight = this.playerFight == null ? null : this.playerFight.copy();
+			copy.statistics.enemiesSlain = this.statistics.enemiesSlain;
+			copy.statistics.healiesConsumed = this.statistics.healiesConsumed;
+			copy.statistics.chestsOpened = this.statistics.chestsOpened;
+			copy.statistics.mysteriousBooksRead = this.statistics.mysteriousBooksRead;
+			copy.statistics.itemsPurchased = this.statistics.itemsPurchased;
+			return copy;
+		}
+
 		public static class PlayerFight {
 
 			private int guard = 0;
 			@Nonnull
 			private final Enemy enemy;
 			@Nonnull
-			private final StringBuilder feed;
+			private final CombatFeed feed;
 			private float playerTime;
 
 			public PlayerFight(@Nonnull Enemy enemy) {
 				this.enemy = enemy;
-				this.feed = new StringBuilder();
+				this.feed = new CombatFeed();
 			}
 
 			public int getGuard() {
@@ -230,7 +387,7 @@ public class Player {
 			}
 
 			@Nonnull
-			public StringBuilder getFeed() {
+			public CombatFeed getFeed() {
 				return this.feed;
 			}
 
@@ -242,6 +399,19 @@ public class Player {
 				this.playerTime = playerTime;
 			}
 
+			@Nonnull
+			PlayerFight copy() {
+				Enemy enemyCopy = new Enemy(this.enemy.getInfo());
+				enemyCopy.setHp(this.enemy.getHp());
+				enemyCopy.setTime(this.enemy.getTime());
+
+				PlayerFight copy = new PlayerFight(enemyCopy);
+				copy.guard = this.guard;
+				copy.feed.copyFrom(this.feed);
+				copy.playerTime = this.playerTime;
+				return copy;
+			}
+
 		}
 
 		public static class PlayerStatistics {
@@ -296,36 +466,598 @@ public class Player {
 
 	}
 
+	/**
+	 * A compact binary layout of {@link Player}, {@link PlayerDungeon},
+	 * {@link PlayerFight} and {@link Inventory}. Database entries are stored by their
+	 * ordinal, so the database enums may only ever be appended to. Records don't carry
+	 * their version, so whoever stores them has to keep track of it.
+	 */
+	public static final class BinaryFormat {
+
+		/**
+		 * The version records are written with. Version 2 added the enemy's time.
+		 */
+		public static final int VERSION = 2;
+		public static final int FEED_LINES = CombatFeed.CAPACITY;
+
+		private static final byte ITEM = 0;
+		private static final byte USABLE_ITEM = 1;
+		private static final byte BATTLE_ITEM = 2;
+		private static final byte HEALING_ITEM = 3;
+		private static final byte WEAPON_ITEM = 4;
+		private static final byte ARMOR_ITEM = 5;
+		private static final byte ENEMY = 0;
+		private static final byte BOSS = 1;
+
+		private static final ItemDatabase[] ITEMS = ItemDatabase.values();
+		private static final UsableItemDatabase[] USABLE_ITEMS = UsableItemDatabase.values();
+		private static final BattleItemDatabase[] BATTLE_ITEMS = BattleItemDatabase.values();
+		private static final HealingItemDatabase[] HEALING_ITEMS = HealingItemDatabase.values();
+		private static final WeaponDatabase[] WEAPONS = WeaponDatabase.values();
+		private static final ArmorDatabase[] ARMORS = ArmorDatabase.values();
+		private static final RegionDatabase[] REGIONS = RegionDatabase.values();
+		private static final EnemyDatabase[] ENEMIES = EnemyDatabase.values();
+		private static final BossInformationDatabase[] BOSSES = BossInformationDatabase.values();
+
+		private BinaryFormat() {}
+
+		/**
+		 * @throws java.nio.BufferOverflowException
+		 *             if the player doesn't fit into the buffer
+		 */
+		public static void write(@Nonnull Player player, @Nonnull ByteBuffer buffer) {
+			buffer.putLong(player.gold).putLong(player.xp);
+			buffer.put((byte) player.armor.getType().ordinal()).put((byte) player.armor.getLevel());
+			buffer.put((byte) player.weapon.getType().ordinal()).put((byte) player.weapon.getLevel());
+
+			buffer.putShort((short) player.inventory.getItems().size());
+			for (ItemStack stack : player.inventory.getItems()) {
+				writeItem(stack.getItem(), buffer);
+				buffer.putInt(stack.getQuantity());
+			}
+
+			PlayerDungeon dungeon = player.playerDungeon;
+			buffer.put((byte) (dungeon == null ? 0 : 1));
+			if (dungeon != null)
+				writeDungeon(dungeon, buffer);
+
+			buffer.putLong(player.lastActive);
+			// Appended at the end so that records written before it was added remain readable
+		}
+
+		private static void writeDungeon(@Nonnull PlayerDungeon dungeon, @Nonnull ByteBuffer buffer) {
+			buffer.putInt(dungeon.lastEncounter).putInt(dungeon.step).putInt(dungeon.levelMark);
+			buffer.put((byte) dungeon.lastRegionBossDefeated.ordinal()).putInt(dungeon.hp).putLong(dungeon.reputationMark);
+			buffer.putInt(dungeon.statistics.enemiesSlain)
+					.putInt(dungeon.statistics.healiesConsumed)
+					.putInt(dungeon.statistics.chestsOpened)
+					.putInt(dungeon.statistics.mysteriousBooksRead)
+					.putInt(dungeon.statistics.itemsPurchased);
+
+			PlayerFight fight = dungeon.playerFight;
+			buffer.put((byte) (fight == null ? 0 : 1));
+			if (fight == null)
+				return;
+
+			buffer.putInt(fight.guard).putFloat(fight.playerTime);
+			EnemyInformation info = fight.enemy.getInfo();
+			buffer.put(info.isBoss() ? BOSS : ENEMY).put((byte) ((Enum<?>) info).ordinal()).putInt(fight.enemy.getHp());
+			buffer.putFloat(fight.enemy.getTime());
+
+			byte[] feed = fight.feed.getLastLines(FEED_LINES).getBytes(UTF_8);
+			buffer.putShort((short) feed.length).put(feed);
+		}
+
+		@Nonnull
+		public static Player read(@Nonnull ByteBuffer buffer) {
+			return read(buffer, VERSION);
+		}
+
+		/**
+		 * Reads a record written with the given version of the format.
+		 */
+		@Nonnull
+		public static Player read(@Nonnull ByteBuffer buffer, int version) {
+			if (version < 1 || version > VERSION)
+				throw new IllegalArgumentException("Unsupported version of the binary format: " + version);
+
+			long gold = buffer.getLong();
+			long xp = buffer.getLong();
+			ArmorItem armor = Utilities.getArmorItem(ARMORS[Byte.toUnsignedInt(buffer.get())], buffer.get());
+			WeaponItem weapon = Utilities.getWeaponItem(WEAPONS[Byte.toUnsignedInt(buffer.get())], buffer.get());
+			Player player = new Player(gold, xp, armor, weapon);
+
+			int stacks = Short.toUnsignedInt(buffer.getShort());
+			for (int i = 0; i < stacks; i++)
+				player.inventory.addItem(readItem(buffer), buffer.getInt());
+
+			if (buffer.get() != 0)
+				player.playerDungeon = readDungeon(buffer, version);
+
+			if (buffer.hasRemaining())
+				player.lastActive = buffer.getLong();
+
+			return player;
+		}
+
+		@Nonnull
+		private static PlayerDungeon readDungeon(@Nonnull ByteBuffer buffer, int version) {
+			int lastEncounter = buffer.getInt();
+			int step = buffer.getInt();
+			int levelMark = buffer.getInt();
+			RegionDatabase lastRegionBoss = REGIONS[Byte.toUnsignedInt(buffer.get())];
+			int hp = buffer.getInt();
+			PlayerDungeon dungeon = new PlayerDungeon(buffer.getLong(), hp);
+			dungeon.lastEncounter = lastEncounter;
+			dungeon.step = step;
+			dungeon.levelMark = levelMark;
+			dungeon.lastRegionBossDefeated = lastRegionBoss;
+			dungeon.statistics.enemiesSlain = buffer.getInt();
+			dungeon.statistics.healiesConsumed = buffer.getInt();
+			dungeon.statistics.chestsOpened = buffer.getInt();
+			dungeon.statistics.mysteriousBooksRead = buffer.getInt();
+			dungeon.statistics.itemsPurchased = buffer.getInt();
+
+			if (buffer.get() == 0)
+				return dungeon;
+
+			int guard = buffer.getInt();
+			float playerTime = buffer.getFloat();
+			byte enemyType = buffer.get();
+			int enemyOrdinal = Byte.toUnsignedInt(buffer.get());
+			Enemy enemy = new Enemy(enemyType == BOSS ? BOSSES[enemyOrdinal] : ENEMIES[enemyOrdinal]);
+			enemy.setHp(buffer.getInt());
+			if (version >= 2)
+				enemy.setTime(buffer.getFloat());
+
+			PlayerFight fight = new PlayerFight(enemy);
+			fight.guard = guard;
+			fight.playerTime = playerTime;
+			byte[] feed = new byte[Short.toUnsignedInt(buffer.getShort())];
+			buffer.get(feed);
+			fight.feed.text(new String(feed, UTF_8));
+			dungeon.playerFight = fight;
+
+			return dungeon;
+		}
+
+		private static void writeItem(@Nonnull Item item, @Nonnull ByteBuffer buffer) {
+			byte type;
+			int ordinal;
+			int level = 0;
+
+			if (item instanceof WeaponItem) {
+				type = WEAPON_ITEM;
+				ordinal = ((WeaponItem) item).getType().ordinal();
+				level = ((WeaponItem) item).getLevel();
+
+			} else if (item instanceof ArmorItem) {
+				type = ARMOR_ITEM;
+				ordinal = ((ArmorItem) item).getType().ordinal();
+				level = ((ArmorItem) item).getLevel();
+
+			} else if (item instanceof ItemDatabase) {
+				type = ITEM;
+				ordinal = ((ItemDatabase) item).ordinal();
+
+			} else if (item instanceof UsableItemDatabase) {
+				type = USABLE_ITEM;
+				ordinal = ((UsableItemDatabase) item).ordinal();
+
+			} else if (item instanceof BattleItemDatabase) {
+				type = BATTLE_ITEM;
+				ordinal = ((BattleItemDatabase) item).ordinal();
+
+			} else if (item instanceof HealingItemDatabase) {
+				type = HEALING_ITEM;
+				ordinal = ((HealingItemDatabase) item).ordinal();
+
+			} else {
+				throw new IllegalArgumentException("Unknown item type: " + item.getClass().getName());
+			}
+
+			buffer.put(type).put((byte) ordinal).put((byte) level);
+		}
+
+		@Nonnull
+		private static Item readItem(@Nonnull ByteBuffer buffer) {
+			byte type = buffer.get();
+			int ordinal = Byte.toUnsignedInt(buffer.get());
+			byte level = buffer.get();
+
+			switch (type) {
+				case WEAPON_ITEM:
+					return Utilities.getWeaponItem(WEAPONS[ordinal], level);
+
+				case ARMOR_ITEM:
+					return Utilities.getArmorItem(ARMORS[ordinal], level);
+
+				case ITEM:
+					return ITEMS[ordinal];
+
+				case USABLE_ITEM:
+					return USABLE_ITEMS[ordinal];
+
+				case BATTLE_ITEM:
+					return BATTLE_ITEMS[ordinal];
+
+				case HEALING_ITEM:
+					return HEALING_ITEMS[ordinal];
+
+				default:
+					throw new IllegalArgumentException("Unknown item type: " + type);
+			}
+		}
+
+	}
+
+	/**
+	 * Streams {@link Player}s to and from the same JSON that Gson's reflective adapter
+	 * produces, without building a tree or using reflection.
+	 */
+	public static final class PlayerTypeAdapter extends TypeAdapter<Player> {
+
+		private static final InventoryTypeAdapter INVENTORY_ADAPTER = new InventoryTypeAdapter();
+
+		@Override
+		public void write(JsonWriter out, Player player) throws IOException {
+			out.beginObject();
+			out.name("gold").value(player.gold);
+			out.name("xp").value(player.xp);
+			out.name("armor").value(Utilities.PACK_IDENTIFIABLE.apply(player.armor));
+			out.name("weapon").value(Utilities.PACK_IDENTIFIABLE.apply(player.weapon));
+			out.name("inventory");
+			INVENTORY_ADAPTER.write(out, player.inventory);
+			if (player.playerDungeon != null) {
+				out.name("playerDungeon");
+				writeDungeon(out, player.playerDungeon);
+			}
+			out.name("lastActive").value(player.lastActive);
+			out.endObject();
+		}
+
+		private static void writeDungeon(@Nonnull JsonWriter out, @Nonnull PlayerDungeon dungeon) throws IOException {
+			out.beginObject();
+			out.name("lastEncounter").value(dungeon.lastEncounter);
+			out.name("step").value(dungeon.step);
+			out.name("levelMark").value(dungeon.levelMark);
+			out.name("lastRegionBossDefeated").value(dungeon.lastRegionBossDefeated.name());
+			out.name("hp").value(dungeon.hp);
+			if (dungeon.playerFight != null) {
+				out.name("playerFight");
+				writeFight(out, dungeon.playerFight);
+			}
+
+			out.name("statistics").beginObject();
+			out.name("enemiesSlain").value(dungeon.statistics.enemiesSlain);
+			out.name("healiesConsumed").value(dungeon.statistics.healiesConsumed);
+			out.name("chestsOpened").value(dungeon.statistics.chestsOpened);
+			out.name("mysteriousBooksRead").value(dungeon.statistics.mysteriousBooksRead);
+			out.name("itemsPurchased").value(dungeon.statistics.itemsPurchased);
+			out.endObject();
+
+			out.name("reputationMark").value(dungeon.reputationMark);
+			out.endObject();
+		}
+
+		private static void writeFight(@Nonnull JsonWriter out, @Nonnull PlayerFight fight) throws IOException {
+			out.beginObject();
+			out.name("guard").value(fight.guard);
+			out.name("enemy").beginObject();
+			out.name("info").value(Utilities.PACK_IDENTIFIABLE.apply(fight.enemy.getInfo()));
+			out.name("hp").value(fight.enemy.getHp());
+			out.name("time").value(Float.valueOf(fight.enemy.getTime()));
+			out.endObject();
+			out.name("feed").value(fight.feed.getLastLines(CombatFeed.CAPACITY));
+			out.name("playerTime").value(Float.valueOf(fight.playerTime));
+			out.endObject();
+		}
+		// Floats are boxed so they're written the same way Gson writes them
+
+		@Override
+		public Player read(JsonReader in) throws IOException {
+			long gold = 0;
+			long xp = 0;
+			ArmorItem armor = null;
+			WeaponItem weapon = null;
+			Inventory inventory = null;
+			PlayerDungeon dungeon = null;
+			long lastActive = 0;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "gold":
+						gold = in.nextLong();
+						break;
+
+					case "xp":
+						xp = in.nextLong();
+						break;
+
+					case "armor":
+						armor = (ArmorItem) Utilities.UNPACK_ITEM.apply(in.nextString());
+						break;
+
+					case "weapon":
+						weapon = (WeaponItem) Utilities.UNPACK_ITEM.apply(in.nextString());
+						break;
+
+					case "inventory":
+						inventory = INVENTORY_ADAPTER.read(in);
+						break;
+
+					case "playerDungeon":
+						dungeon = readNullable(in, PlayerTypeAdapter::readDungeon);
+						break;
+
+					case "lastActive":
+						lastActive = in.nextLong();
+						break;
+
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			if (armor == null || weapon == null)
+				throw new JsonParseException("A player is missing its gear.");
+
+			Player player = new Player(gold, xp, armor, weapon);
+			if (inventory != null)
+				player.inventory = inventory;
+			player.playerDungeon = dungeon;
+			player.lastActive = lastActive;
+			return player;
+		}
+
+		@Nonnull
+		private static PlayerDungeon readDungeon(@Nonnull JsonReader in) throws IOException {
+			int lastEncounter = 0;
+			int step = 0;
+			int levelMark = 0;
+			RegionDatabase lastRegionBoss = RegionDatabase.SEWERS;
+			int hp = 0;
+			PlayerFight fight = null;
+			PlayerStatistics statistics = null;
+			long reputationMark = 0;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "lastEncounter":
+						lastEncounter = in.nextInt();
+						break;
+
+					case "step":
+						step = in.nextInt();
+						break;
+
+					case "levelMark":
+						levelMark = in.nextInt();
+						break;
+
+					case "lastRegionBossDefeated":
+						lastRegionBoss = RegionDatabase.valueOf(in.nextString());
+						break;
+
+					case "hp":
+						hp = in.nextInt();
+						break;
+
+					case "playerFight":
+						fight = readNullable(in, PlayerTypeAdapter::readFight);
+						break;
+
+					case "statistics":
+						statistics = readStatistics(in);
+						break;
+
+					case "reputationMark":
+						reputationMark = in.nextLong();
+						break;
+
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			PlayerDungeon dungeon = new PlayerDungeon(reputationMark, hp);
+			dungeon.lastEncounter = lastEncounter;
+			dungeon.step = step;
+			dungeon.levelMark = levelMark;
+			dungeon.lastRegionBossDefeated = lastRegionBoss;
+			dungeon.playerFight = fight;
+			if (statistics != null) {
+				dungeon.statistics.enemiesSlain = statistics.enemiesSlain;
+				dungeon.statistics.healiesConsumed = statistics.healiesConsumed;
+				dungeon.statistics.chestsOpened = statistics.chestsOpened;
+				dungeon.statistics.mysteriousBooksRead = statistics.mysteriousBooksRead;
+				dungeon.statistics.itemsPurchased = statistics.itemsPurchased;
+			}
+			return dungeon;
+		}
+
+		@Nonnull
+		private static PlayerStatistics readStatistics(@Nonnull JsonReader in) throws IOException {
+			PlayerStatistics statistics = new PlayerStatistics();
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "enemiesSlain":
+						statistics.enemiesSlain = in.nextInt();
+						break;
+
+					case "healiesConsumed":
+						statistics.healiesConsumed = in.nextInt();
+						break;
+
+					case "chestsOpened":
+						statistics.chestsOpened = in.nextInt();
+						break;
+
+					case "mysteriousBooksRead":
+						statistics.mysteriousBooksRead = in.nextInt();
+						break;
+
+					case "itemsPurchased":
+						statistics.itemsPurchased = in.nextInt();
+						break;
+
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return statistics;
+		}
+
+		@Nonnull
+		private static PlayerFight readFight(@Nonnull JsonReader in) throws IOException {
+			int guard = 0;
+			Enemy enemy = null;
+			String feed = "";
+			float playerTime = 0;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "guard":
+						guard = in.nextInt();
+						break;
+
+					case "enemy":
+						enemy = readEnemy(in);
+						break;
+
+					case "feed":
+						feed = in.nextString();
+						break;
+
+					case "playerTime":
+						playerTime = (float) in.nextDouble();
+						break;
+
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			if (enemy == null)
+				throw new JsonParseException("A fight is missing its enemy.");
+
+			PlayerFight fight = new PlayerFight(enemy);
+			fight.guard = guard;
+			fight.feed.text(feed);
+			fight.playerTime = playerTime;
+			return fight;
+		}
+
+		@Nonnull
+		private static Enemy readEnemy(@Nonnull JsonReader in) throws IOException {
+			EnemyInformation info = null;
+			int hp = 0;
+			float time = 0;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "info":
+						info = Utilities.UNPACK_ENEMY.apply(in.nextString());
+						break;
+
+					case "hp":
+						hp = in.nextInt();
+						break;
+
+					case "time":
+						time = (float) in.nextDouble();
+						break;
+
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			if (info == null)
+				throw new JsonParseException("An enemy is missing its information.");
+
+			Enemy enemy = new Enemy(info);
+			enemy.setHp(hp);
+			enemy.setTime(time);
+			return enemy;
+		}
+
+		@Nullable
+		private static <T> T readNullable(@Nonnull JsonReader in, @Nonnull JsonReaderFunction<T> reader) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+
+			return reader.read(in);
+		}
+
+		private static interface JsonReaderFunction<T> {
+
+			public T read(JsonReader in) throws IOException;
+
+		}
+
+	}
+
 	public static class PlayerFighter extends FightingCharacter {
 
 		private final Player player;
+		@Nonnull
+		private final String name;
+		@Nullable
 		private final FightInfo fight;
+		// Null in headless sessions, which take the player's actions through Engine instead
 
+		@SuppressWarnings("null")
 		public PlayerFighter(Player player, FightInfo fight) {
+			this(player, fight.getAuthor().getName(), fight);
+		}
+
+		PlayerFighter(Player player, @Nonnull String name) {
+			this(player, name, null);
+		}
+
+		private PlayerFighter(Player player, @Nonnull String name, @Nullable FightInfo fight) {
 			this.player = player;
+			this.name = name;
 			this.fight = fight;
 		}
 
 		public static void guard(FightInfo fight, Consumer<Float> callback) {
 			if (fight.getPlayerFight().getGuard() >= Combat.MAX_GUARD) {
 				Assets.MAX_GUARD_MESSAGE.display(fight.getChannel());
-				Utilities.sleep(1000);
-				callback.accept(0f);
+				Utilities.later(fight, 1000, () -> callback.accept(0f));
 
 			} else {
-				fight.getPlayerFight().getFeed().append("+ " + fight.getAuthor().getName() + " raises their guard.\n");
-				fight.getPlayerFight().setGuard(fight.getPlayerFight().getGuard() + 2);
-				callback.accept(1f);
+				callback.accept(Engine.perform(fight, Action.GUARD));
 			}
 		}
 
 		private static void inventory(FightInfo fight, Consumer<Float> callback) {
 			Items.openInventory(fight, item -> {
 				// Use
-				if (item instanceof BattleItem) {
+				if (item instanceof HealingItem) {
+					// If the item is a HealingItem (records its own heal event)
+					Items.useBattleItem((HealingItem) item, fight,
+						name -> callback.accept(((UsableItem) item).getSpeed()));
+
+				} else if (item instanceof BattleItem) {
 					// If the item is a BattleItem (has text)
 					Items.useBattleItem((BattleItem) item, fight, feed -> {
-						fight.getPlayerFight().getFeed().append("+ " + feed + "\n");
+						fight.getPlayerFight().getFeed().text("+ " + feed);
 						callback.accept(((UsableItem) item).getSpeed());
 					});
 
@@ -333,9 +1065,7 @@ public class Player {
 					// If the item is not a BattleItem (doesn't have text)
 					Items.useUsableItem((UsableItem) item, fight, used -> {
 						if (used) {
-							fight.getPlayerFight()
-									.getFeed()
-									.append("+ " + fight.getAuthor().getName() + " uses the " + item.getName() + ".\n");
+							fight.getPlayerFight().getFeed().item(fight.getAuthor().getName(), item.getName());
 							callback.accept(((UsableItem) item).getSpeed());
 						} else {
 							callback.accept(0f);
@@ -345,10 +1075,9 @@ public class Player {
 			}, Utilities.FIGHT_PICK, () -> callback.accept(0f));
 		}
 
-		@SuppressWarnings("null")
 		@Override
 		public String getName() {
-			return this.fight.getAuthor().getName();
+			return this.name;
 		}
 
 		@Override
@@ -372,12 +1101,16 @@ public class Player {
 		}
 
 		@Override
-		public void turn(FightInfo fight, Consumer<Float> callback) {
+		public void turn(Battle battle, Consumer<Float> callback) {
+			FightInfo fight = this.fight;
+			if (fight == null)
+				throw new IllegalStateException("Headless players take their turns through Engine.");
+
+			fight.markDirty();
 			new ChoiceDialog(fight.getContext(), Assets.FIGHT_STATUS_PREPARED.generate(fight), choice -> {
 
 				if (choice == 0) {
-					callback.accept(Combat.hitTurn(this, fight.getPlayerFight().getEnemy(), 0, fight,
-						Math.round(this.player.getLevel() * .1f)));
+					callback.accept(Engine.perform(fight, Action.HIT));
 
 				} else if (choice == 1) {
 					guard(fight, callback);
@@ -388,15 +1121,15 @@ public class Player {
 				} else if (choice == 3) {
 					new BooleanDialog(fight.getContext(), Assets.SURRENDER_MESSAGE, surrender -> {
 						if (surrender) {
-							callback.accept(-1f);
+							callback.accept(Engine.perform(fight, Action.SURRENDER));
 						} else {
-							turn(fight, callback);
+							turn(battle, callback);
 						}
 
 					}).display(fight.getChannel());
 
 				} else {
-					Utilities.confirmExit(fight.getContext(), () -> turn(fight, callback));
+					Utilities.confirmExit(fight.getContext(), () -> turn(battle, callback));
 				}
 
 			}, "h", "g", "i", "s", "exit").display(fight.getChannel());
@@ -409,12 +1142,12 @@ public class Player {
 
 		@Override
 		public float getTime() {
-			return this.fight.getPlayerFight().getPlayerTime();
+			return this.player.getPlayerDungeon().getPlayerFight().getPlayerTime();
 		}
 
 		@Override
 		public void setTime(float time) {
-			this.fight.getPlayerFight().setPlayerTime(time);
+			this.player.getPlayerDungeon().getPlayerFight().setPlayerTime(time);
 		}
 
 		@Override
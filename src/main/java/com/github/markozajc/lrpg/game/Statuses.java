@@ -4,6 +4,7 @@ import javax.annotation.Nonnull;
 
 import com.github.markozajc.lithium.Lithium;
 import com.github.markozajc.lithium.processes.context.CommandContext;
+import com.github.markozajc.lrpg.game.Combat.Battle;
 import com.github.markozajc.lrpg.game.Enemies.Enemy;
 import com.github.markozajc.lrpg.game.Player.PlayerDungeon;
 import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerFight;
@@ -29,20 +30,17 @@ public class Statuses {
 		public GameInfo(@Nonnull CommandContext context) {
 			this.context = context;
 
-			Player newPlayer = getLithium().getProviderManager()
-					.getProvider(LRpgProvider.class)
-					.getPlayer(getEvent().getAuthor());
+			Player newPlayer = getProvider().getPlayer(getEvent().getAuthor());
 			if (newPlayer == null) {
 				this.firstTimeLaunch = true;
-				newPlayer = getLithium().getProviderManager()
-						.getProvider(LRpgProvider.class)
-						.createPlayer(getEvent().getAuthor());
+				newPlayer = getProvider().createPlayer(getEvent().getAuthor());
 
 			} else {
 				this.firstTimeLaunch = false;
 			}
 
 			this.player = newPlayer;
+			markDirty();
 		}
 
 		public GameInfo(@Nonnull GameInfo game) {
@@ -51,6 +49,19 @@ public class Statuses {
 			this.firstTimeLaunch = game.firstTimeLaunch;
 		}
 
+		@Nonnull
+		private LRpgProvider getProvider() {
+			return getLithium().getProviderManager().getProvider(LRpgProvider.class);
+		}
+
+		/**
+		 * Marks the player as changed so it gets persisted on the next flush. Should be
+		 * called whenever the game reaches a checkpoint (eg. displays a status).
+		 */
+		public void markDirty() {
+			getProvider().markDirty(getAuthor(), this.player);
+		}
+
 		public boolean isFirstTimeLaunch() {
 			return this.firstTimeLaunch;
 		}
@@ -111,7 +122,7 @@ public class Statuses {
 
 	}
 
-	public static class FightInfo extends DungeonInfo {
+	public static class FightInfo extends DungeonInfo implements Battle {
 
 		@Nonnull
 		private final PlayerFighter playerFighter;
@@ -132,11 +143,13 @@ public class Statuses {
 			this.resumed = resumed;
 		}
 
+		@Override
 		@Nonnull
 		public PlayerFighter getPlayerFighter() {
 			return this.playerFighter;
 		}
 
+		@Override
 		public PlayerFight getPlayerFight() {
 			return this.getPlayer().getPlayerDungeon().getPlayerFight();
 		}
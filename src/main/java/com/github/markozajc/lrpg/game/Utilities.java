@@ -1,23 +1,35 @@
 package com.github.markozajc.lrpg.game;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.function.IntUnaryOperator;
 import java.util.function.LongFunction;
 import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.github.markozajc.lithium.processes.context.CommandContext;
-import com.github.markozajc.lithium.utilities.BotUtils;
+import com.github.markozajc.lithium.utilities.dialogs.message.MessageDialog;
 import com.github.markozajc.lithium.utilities.dialogs.waiter.BooleanDialog;
 import com.github.markozajc.lrpg.game.Enemies.BossInformationDatabase;
 import com.github.markozajc.lrpg.game.Enemies.EnemyDatabase;
@@ -43,12 +55,10 @@ import com.github.markozajc.lrpg.game.LRpgExposed.IdentifiableObject;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithRarity;
 import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithReputation;
 import com.github.markozajc.lrpg.game.Statuses.GameInfo;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import net.dv8tion.jda.core.entities.MessageEmbed.Field;
 
@@ -57,20 +67,211 @@ public class Utilities {
 	private Utilities() {}
 
 	public static final IntUnaryOperator CALCULATE_MAX_HEALTH = lvl -> 40 + lvl * 2;
-	public static final LongFunction<RegionDatabase> GET_REGION = rep -> {
-		for (int i = 0; i < RegionDatabase.values().length; i++)
-			if (rep < RegionDatabase.values()[i].getReputation())
-				return RegionDatabase.values()[i - 1];
+	public static final LongFunction<RegionDatabase> GET_REGION = rep -> RegionIndex.REGIONS[RegionIndex.BANDS
+			.countAtMost(rep) - 1];
+
+	/**
+	 * A sorted set of reputation thresholds (duplicates included) that can tell how
+	 * many of them a given reputation has reached. When built from objects sorted by
+	 * their reputation, the counts are the number of leading objects available at that
+	 * reputation, so choosing among them doesn't require filtering.
+	 */
+	public static final class ReputationBands {
+
+		@Nonnull
+		private final long[] reputations;
+
+		public ReputationBands(@Nonnull long[] reputations) {
+			this.reputations = reputations.clone();
+			Arrays.sort(this.reputations);
+		}
 
-		return RegionDatabase.values()[RegionDatabase.values().length - 1];
-	};
+		@Nonnull
+		public static ReputationBands of(@Nonnull ObjectWithReputation... objects) {
+			long[] reputations = new long[objects.length];
+			for (int i = 0; i < objects.length; i++)
+				reputations[i] = objects[i].getReputation();
+
+			return new ReputationBands(reputations);
+		}
+
+		public int size() {
+			return this.reputations.length;
+		}
+
+		/**
+		 * @return the number of thresholds lower than the reputation
+		 */
+		public int countBelow(long reputation) {
+			int low = 0;
+			int high = this.reputations.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.reputations[middle] < reputation) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			return low;
+		}
+
+		/**
+		 * @return the number of thresholds lower than or equal to the reputation
+		 */
+		public int countAtMost(long reputation) {
+			int low = 0;
+			int high = this.reputations.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.reputations[middle] <= reputation) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			return low;
+		}
+
+	}
+
+	/**
+	 * The regions sorted by their reputation. Built on first use, as building it
+	 * requires the regions to be initialized.
+	 */
+	private static final class RegionIndex {
+
+		static final RegionDatabase[] REGIONS;
+		static final ReputationBands BANDS;
+
+		static {
+			REGIONS = RegionDatabase.values();
+			Arrays.sort(REGIONS, Comparator.comparingLong(RegionDatabase::getReputation));
+			BANDS = ReputationBands.of(REGIONS);
+		}
+
+		private RegionIndex() {}
+
+	}
+
+	/**
+	 * A session that is waiting for {@link Utilities#later(GameInfo, int, Runnable)} to
+	 * run its continuation. It has neither a dialog nor a process while it waits, so it
+	 * is kept in {@link Utilities#PAUSES} instead.
+	 */
+	private static final class Pause {
+
+		@Nonnull
+		final CommandContext context;
+
+		Pause(@Nonnull CommandContext context) {
+			this.context = context;
+		}
+
+	}
+
+	private static final Map<Long, Pause> PAUSES = new ConcurrentHashMap<>();
+	private static final ScheduledExecutorService PACER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "lrpg-pacer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// Only waits out the delays, the continuations are handed over to the session executor
+	@Nullable
+	private static volatile Executor sessionExecutor;
+
+	/**
+	 * Sets the executor game sessions run on (the one given to Lithium's
+	 * {@code ProcessManager}). Paused sessions run their continuations on it.
+	 */
+	public static void setSessionExecutor(@Nonnull Executor executor) {
+		sessionExecutor = executor;
+	}
+
+	/**
+	 * @return the contexts of the sessions that are paused by
+	 *         {@link #later(GameInfo, int, Runnable)}
+	 */
+	@Nonnull
+	public static Stream<CommandContext> getPausedSessions() {
+		return PAUSES.values().stream().map(p -> p.context);
+	}
+
+	/**
+	 * Runs the continuation on the session executor after the given delay, for pacing
+	 * the game between messages. No thread is held while waiting. The session stays in {@link #getPausedSessions()} until
+	 * the continuation has returned, by which time it has either displayed its next
+	 * dialog or ended. An exception thrown by the continuation ends the session and is
+	 * reported in its channel. The continuation keeps the {@link RandomSource} of the
+	 * calling thread.
+	 */
+	public static void later(@Nonnull GameInfo game, int milliseconds, @Nonnull Runnable continuation) {
+		Executor executor = sessionExecutor;
+		if (executor == null)
+			throw new IllegalStateException("The session executor hasn't been set.");
+
+		CommandContext context = game.getContext();
+		long userId = context.getUser().getIdLong();
+		Pause pause = new Pause(context);
+		PAUSES.put(userId, pause);
+		RandomSource random = RANDOM.get();
+		Runnable task = () -> {
+			setRandom(random);
+			try {
+				continuation.run();
+
+			} catch (RuntimeException e) {
+				fail(context, "Uncaught exception in a game continuation.", e);
+
+			} finally {
+				PAUSES.remove(userId, pause);
+				setRandom(null);
+			}
+		};
+		// The pause is only removed if the continuation hasn't paused the session again
 
-	public static void sleep(int milliseconds) {
 		try {
-			Thread.sleep(milliseconds);
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
+			PACER.schedule(() -> {
+				try {
+					executor.execute(task);
+
+				} catch (RejectedExecutionException e) {
+					PAUSES.remove(userId, pause);
+					fail(context, "The session executor has rejected a game continuation.", e);
+				}
+			}, milliseconds, TimeUnit.MILLISECONDS);
+
+		} catch (RejectedExecutionException e) {
+			PAUSES.remove(userId, pause);
+			fail(context, "Failed to schedule a game continuation.", e);
+		}
+	}
+
+	private static void fail(@Nonnull CommandContext context, @Nonnull String message, @Nonnull Exception e) {
+		LRpgExposed.LOG.error(message, e);
+		Assets.SESSION_FAILED_MESSAGE.display(context.getChannel());
+	}
+
+	/**
+	 * Displays the messages one after another, waiting for the given delay after each
+	 * one, and then runs the continuation. Uses {@link #later(GameInfo, int, Runnable)}.
+	 */
+	public static void displayPaced(@Nonnull MessageDialog[] messages, @Nonnull GameInfo game, int milliseconds,
+			@Nonnull Runnable continuation) {
+		displayPaced(messages, 0, game, milliseconds, continuation);
+	}
+
+	private static void displayPaced(@Nonnull MessageDialog[] messages, int index, @Nonnull GameInfo game,
+			int milliseconds, @Nonnull Runnable continuation) {
+		if (index == messages.length) {
+			continuation.run();
+			return;
 		}
+
+		messages[index].display(game.getChannel());
+		later(game, milliseconds, () -> displayPaced(messages, index + 1, game, milliseconds, continuation));
 	}
 
 	public static <T extends ObjectWithReputation> List<T> getObjectsWithReputation(List<T> objects, long reputation) {
@@ -113,12 +314,105 @@ public class Utilities {
 	//////////////////////////////////////////////////////////////////////////////////////
 	// RANDOM VALUES
 	//////////////////////////////////////////////////////////////////////////////////////
+	/**
+	 * The source of all of the game's randomness.
+	 */
+	public static interface RandomSource {
+
+		/**
+		 * A source that uses {@link ThreadLocalRandom}, so game threads never contend on
+		 * a shared seed. This is the default.
+		 */
+		public static final RandomSource THREAD_LOCAL = new RandomSource() {
+
+			@Override
+			public int nextInt(int bound) {
+				return ThreadLocalRandom.current().nextInt(bound);
+			}
+
+			@Override
+			public float nextFloat() {
+				return ThreadLocalRandom.current().nextFloat();
+			}
+
+			@Override
+			public boolean nextBoolean() {
+				return ThreadLocalRandom.current().nextBoolean();
+			}
+
+		};
+
+		/**
+		 * @return a source that produces the same sequence for the same seed, for
+		 *         replaying games. It must only be used by one thread at a time
+		 */
+		@Nonnull
+		public static RandomSource seeded(long seed) {
+			SplittableRandom random = new SplittableRandom(seed);
+			return new RandomSource() {
+
+				@Override
+				public int nextInt(int bound) {
+					return random.nextInt(bound);
+				}
+
+				@Override
+				public float nextFloat() {
+					return (random.nextInt() >>> 8) * 0x1.0p-24f;
+					// The same way Random derives floats, SplittableRandom has no nextFloat()
+				}
+
+				@Override
+				public boolean nextBoolean() {
+					return random.nextBoolean();
+				}
+
+			};
+		}
+
+		public int nextInt(int bound);
+
+		public float nextFloat();
+
+		public boolean nextBoolean();
+
+	}
+
+	private static final ThreadLocal<RandomSource> RANDOM = new ThreadLocal<>();
+
+	/**
+	 * @return the {@link RandomSource} of the current thread, which is
+	 *         {@link RandomSource#THREAD_LOCAL} unless set otherwise with
+	 *         {@link #setRandom(RandomSource)}
+	 */
+	@Nonnull
+	public static RandomSource getRandom() {
+		RandomSource random = RANDOM.get();
+		if (random == null)
+			return RandomSource.THREAD_LOCAL;
+
+		return random;
+	}
+
+	/**
+	 * Replaces the {@link RandomSource} of the current thread, for example with a
+	 * seeded one to replay a game. {@code null} restores the default.
+	 */
+	public static void setRandom(@Nullable RandomSource random) {
+		if (random == null) {
+			RANDOM.remove();
+		} else {
+			RANDOM.set(random);
+		}
+	}
+
 	public static final LongUnaryOperator HALF_UP_OR_DOWN_RANDOMIZE = base -> {
+		RandomSource random = getRandom();
 
-		int amount = BotUtils.getRandom().nextInt(Math.round(base * .5f));
+		int amount = random.nextInt(Math.round(base * .5f));
 		// Gets a random amount ranging from 0 to half of the base
 
-		if (BotUtils.getRandom().nextBoolean())
+		if (random.nextBoolean())
 			amount *= -1;
 		// Negates the number half of the time
 
@@ -157,18 +451,18 @@ public class Utilities {
 	}
 
 	public static boolean getChance(@Nonnegative float chance) {
-		boolean result = BotUtils.getRandom().nextFloat() <= chance;
+		boolean result = getRandom().nextFloat() <= chance;
 		LRpgExposed.LOG.debug("Randomly evaluated chance of {} to {}.", chance, result);
 		return result;
 	}
 
 	public static int intRange(int min, int max) {
-		return BotUtils.getRandom().nextInt(max - min + 1) + min;
+		return getRandom().nextInt(max - min + 1) + min;
 	}
 
 	@Nonnegative
 	public static int getRandomGold(Player player, float topPercentage) {
-		return Math.round(player.getGold() * (BotUtils.getRandom().nextFloat() * topPercentage)) + 1;
+		return Math.round(player.getGold() * (getRandom().nextFloat() * topPercentage)) + 1;
 	}
 
 	// GETRANDOMELEMENT x2
@@ -177,7 +471,7 @@ public class Utilities {
 		if (array.length <= 0)
 			throw Assets.UTILITIES_EMPTY_CONTAINER_EXCEPTION;
 
-		return array[BotUtils.getRandom().nextInt(array.length)];
+		return array[getRandom().nextInt(array.length)];
 	}
 
 	@SuppressWarnings("null")
@@ -186,7 +480,7 @@ public class Utilities {
 		if (list.isEmpty())
 			throw Assets.UTILITIES_EMPTY_CONTAINER_EXCEPTION;
 
-		return list.get(BotUtils.getRandom().nextInt(list.size()));
+		return list.get(getRandom().nextInt(list.size()));
 	}
 
 	/// GETRANDOMITEM x3
@@ -201,10 +495,30 @@ public class Utilities {
 		return getRandomItemWithFallback(reputation, chanceMultiplier, null, items);
 	}
 
-	@SuppressWarnings("null")
+	@Nullable
+	public static Item getRandomItem(long reputation, @Nonnull RaritySampler<ItemRarityPack> items) {
+		return getRandomItemWithFallback(reputation, items, null);
+	}
+
 	@Nullable
 	public static Item getRandomItemWithFallback(long reputation, float chanceMultiplier, @Nullable ItemRarityPack fallback, @Nonnull ItemRarityPack... items) {
-		ItemRarityPack selected = getRandomValue(Arrays.asList(items), chanceMultiplier);
+		return getItemWithFallback(reputation, getRandomValue(Arrays.asList(items), chanceMultiplier), fallback);
+	}
+
+	/**
+	 * Same as {@link #getRandomItemWithFallback(long, float, ItemRarityPack,
+	 * ItemRarityPack...)}, but rolls the packs with a sampler that is built once (see
+	 * the samplers in {@link Assets}).
+	 */
+	@Nullable
+	public static Item getRandomItemWithFallback(long reputation, @Nonnull RaritySampler<ItemRarityPack> items, @Nullable ItemRarityPack fallback) {
+		return getItemWithFallback(reputation, items.sample(), fallback);
+	}
+
+	@SuppressWarnings("null")
+	@Nullable
+	private static Item getItemWithFallback(long reputation, @Nullable ItemRarityPack rolled, @Nullable ItemRarityPack fallback) {
+		ItemRarityPack selected = rolled;
 		// Selects a random ItemRarityPack based on its rarity
 
 		if (selected == null) {
@@ -226,6 +540,12 @@ public class Utilities {
 		return getRandomValue(objects, 1f);
 	}
 
+	/**
+	 * Rolls each object's chance (its rarity times the multiplier) from the most to
+	 * the least common one and returns the first one that succeeds, or {@code null}
+	 * if none do. Sorts the list in place. Use a {@link RaritySampler} to roll the same
+	 * objects repeatedly.
+	 */
 	@Nullable
 	public static <T extends ObjectWithRarity> T getRandomValue(@Nonnull List<T> objects, float multiplier) {
 		Collections.sort(objects, Assets.OBJECTWITHRARITY_COMPARATOR);
@@ -236,6 +556,88 @@ public class Utilities {
 
 		return null;
 	}
+	// Building a sampler only pays off once it's reused, so one-off lists are rolled directly
+
+	/**
+	 * Precomputed {@link #getRandomValue(List, float)}. The probability of every
+	 * outcome (including nothing) is worked out once and put into an alias table, so
+	 * each roll takes a single random index and a single random float, regardless of
+	 * the number of objects.
+	 */
+	public static final class RaritySampler<T extends ObjectWithRarity> {
+
+		@Nonnull
+		private final Object[] outcomes;
+		@Nonnull
+		private final float[] probabilities;
+		@Nonnull
+		private final int[] aliases;
+
+		public RaritySampler(@Nonnull List<T> objects, float multiplier) {
+			List<T> sorted = new ArrayList<>(objects);
+			sorted.sort(Assets.OBJECTWITHRARITY_COMPARATOR);
+
+			int size = sorted.size() + 1;
+			// The last outcome is nothing
+			this.outcomes = sorted.toArray(new Object[size]);
+
+			double[] weights = new double[size];
+			double remaining = 1;
+			for (int i = 0; i < size - 1; i++) {
+				double chance = Math.max(0, Math.min(1, sorted.get(i).getRarity() * multiplier));
+				weights[i] = remaining * chance;
+				remaining -= weights[i];
+			}
+			weights[size - 1] = Math.max(0, remaining);
+			// The chance of reaching an object is the chance of all of the more common ones failing
+
+			this.probabilities = new float[size];
+			this.aliases = new int[size];
+			int[] small = new int[size];
+			int[] large = new int[size];
+			int smallCount = 0;
+			int largeCount = 0;
+			for (int i = 0; i < size; i++) {
+				weights[i] *= size;
+				if (weights[i] < 1) {
+					small[smallCount++] = i;
+				} else {
+					large[largeCount++] = i;
+				}
+			}
+
+			while (smallCount > 0 && largeCount > 0) {
+				int less = small[--smallCount];
+				int more = large[--largeCount];
+				this.probabilities[less] = (float) weights[less];
+				this.aliases[less] = more;
+
+				weights[more] += weights[less] - 1;
+				if (weights[more] < 1) {
+					small[smallCount++] = more;
+				} else {
+					large[largeCount++] = more;
+				}
+			}
+			while (largeCount > 0)
+				this.probabilities[large[--largeCount]] = 1;
+			while (smallCount > 0)
+				this.probabilities[small[--smallCount]] = 1;
+			// Vose's alias method, the leftovers only differ from 1 by rounding errors
+		}
+
+		@SuppressWarnings("unchecked")
+		@Nullable
+		public T sample() {
+			RandomSource random = getRandom();
+			int column = random.nextInt(this.outcomes.length);
+			if (random.nextFloat() < this.probabilities[column])
+				return (T) this.outcomes[column];
+
+			return (T) this.outcomes[this.aliases[column]];
+		}
+
+	}
 
 	//////////////////////////////////////////////////////////////////////////////////////
 	// FRONTEND / USER INTERACTION LAYER
@@ -304,8 +706,7 @@ public class Utilities {
 	//////////////////////////////////////////////////////////////////////////////////////
 	// DATA MANAGEMENT
 	//////////////////////////////////////////////////////////////////////////////////////
-	public static class IdentifiableObjectTypeAdapter<T extends IdentifiableObject>
-			implements JsonSerializer<T>, JsonDeserializer<T> {
+	public static class IdentifiableObjectTypeAdapter<T extends IdentifiableObject> extends TypeAdapter<T> {
 
 		private final Function<String, T> unpackFunction;
 
@@ -314,79 +715,174 @@ public class Utilities {
 		}
 
 		@Override
-		public T deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
-			return this.unpackFunction.apply(json.getAsString());
+		public T read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+
+			return this.unpackFunction.apply(in.nextString());
 		}
 
 		@Override
-		public JsonElement serialize(T src, Type typeOfSrc, JsonSerializationContext context) {
-			return new JsonPrimitive(PACK_IDENTIFIABLE.apply(src));
+		public void write(JsonWriter out, T value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+				return;
+			}
+
+			out.value(PACK_IDENTIFIABLE.apply(value));
 		}
 
 	}
 
-	@SuppressWarnings("null")
-	public static final Function<String, EnemyInformation> UNPACK_ENEMY = id -> {
-		String[] split = id.split(":");
+	public static final Function<String, EnemyInformation> UNPACK_ENEMY = token -> TokenIndex.ENEMIES.get(token);
+	public static final Function<String, Item> UNPACK_ITEM = token -> {
+		Item item = TokenIndex.ITEMS.get(token);
+		if (item == null)
+			item = unpackGearItem(token);
+		// Only gear that was upgraded past the maximum level isn't indexed
 
-		EnemyInformation[] database;
+		return item;
+	};
+	public static final Function<IdentifiableObject, String> PACK_IDENTIFIABLE = io -> io.getDatabaseToken() + ":"
+			+ io.getIdentification();
+	////
 
-		switch (split[0]) {
-			case "E":
-				database = EnemyDatabase.values();
-				break;
+	/**
+	 * Maps all database tokens (as created by {@link #PACK_IDENTIFIABLE}) to their
+	 * objects. Built on first use, as building it requires the databases to be
+	 * initialized.
+	 */
+	private static final class TokenIndex {
+
+		static final Map<String, Item> ITEMS;
+		static final Map<String, EnemyInformation> ENEMIES;
+		static final Map<String, WeaponDatabase> WEAPONS;
+		static final Map<String, ArmorDatabase> ARMORS;
+
+		static {
+			Map<String, Item> items = new HashMap<>();
+			index(items, ItemDatabase.values());
+			index(items, UsableItemDatabase.values());
+			index(items, BattleItemDatabase.values());
+			index(items, HealingItemDatabase.values());
+			for (WeaponItem[] levels : GearIndex.WEAPON_ITEMS)
+				index(items, levels);
+			for (ArmorItem[] levels : GearIndex.ARMOR_ITEMS)
+				index(items, levels);
+			ITEMS = Collections.unmodifiableMap(items);
+
+			Map<String, EnemyInformation> enemies = new HashMap<>();
+			index(enemies, EnemyDatabase.values());
+			index(enemies, BossInformationDatabase.values());
+			ENEMIES = Collections.unmodifiableMap(enemies);
+
+			Map<String, WeaponDatabase> weaponNames = new HashMap<>();
+			for (WeaponDatabase weapon : WeaponDatabase.values())
+				weaponNames.put(weapon.getIdentification(), weapon);
+			WEAPONS = Collections.unmodifiableMap(weaponNames);
+
+			Map<String, ArmorDatabase> armorNames = new HashMap<>();
+			for (ArmorDatabase armor : ArmorDatabase.values())
+				armorNames.put(armor.getIdentification(), armor);
+			ARMORS = Collections.unmodifiableMap(armorNames);
+		}
 
-			case "B":
-				database = BossInformationDatabase.values();
-				break;
+		private TokenIndex() {}
 
-			default:
-				return null;
+		private static <T extends IdentifiableObject> void index(@Nonnull Map<String, ? super T> index, @Nonnull T[] database) {
+			for (T object : database)
+				index.put(PACK_IDENTIFIABLE.apply(object), object);
 		}
 
-		return findFromDatabase(database, split[1]);
-	};
-	@SuppressWarnings("null")
-	public static final Function<String, Item> UNPACK_ITEM = id -> {
-		String[] split = id.split(":");
-
-		if (split[0].startsWith("WI")) {
-			return new WeaponItem(findFromDatabase(WeaponDatabase.values(), split[1]),
-					Integer.parseInt(split[0].split("-")[1]));
+	}
 
-		} else if (split[0].startsWith("AI")) {
-			return new ArmorItem(findFromDatabase(ArmorDatabase.values(), split[1]),
-					Integer.parseInt(split[0].split("-")[1]));
+	/**
+	 * Holds the only instances of every piece of gear. Kept apart from
+	 * {@link TokenIndex} as it only depends on the gear databases, so it can be used
+	 * while the other databases are still being initialized.
+	 */
+	private static final class GearIndex {
+
+		static final WeaponItem[][] WEAPON_ITEMS;
+		static final ArmorItem[][] ARMOR_ITEMS;
+		static final Map<Long, WeaponItem> OVERLEVELED_WEAPON_ITEMS = new ConcurrentHashMap<>();
+		static final Map<Long, ArmorItem> OVERLEVELED_ARMOR_ITEMS = new ConcurrentHashMap<>();
+		// Gear outside of the regular levels is rare, so it's interned on demand
+
+		static {
+			WeaponDatabase[] weapons = WeaponDatabase.values();
+			WEAPON_ITEMS = new WeaponItem[weapons.length][GearItem.MAX_GEAR_LEVEL + 1];
+			for (WeaponDatabase weapon : weapons)
+				for (int level = 0; level <= GearItem.MAX_GEAR_LEVEL; level++)
+					WEAPON_ITEMS[weapon.ordinal()][level] = new WeaponItem(weapon, level);
+
+			ArmorDatabase[] armors = ArmorDatabase.values();
+			ARMOR_ITEMS = new ArmorItem[armors.length][GearItem.MAX_GEAR_LEVEL + 1];
+			for (ArmorDatabase armor : armors)
+				for (int level = 0; level <= GearItem.MAX_GEAR_LEVEL; level++)
+					ARMOR_ITEMS[armor.ordinal()][level] = new ArmorItem(armor, level);
 		}
 
-		Item[] database;
+		private GearIndex() {}
 
-		switch (split[0]) {
-			case "I":
-				database = ItemDatabase.values();
-				break;
+		static long getKey(@Nonnull Enum<?> type, int level) {
+			return (long) level << Integer.SIZE | type.ordinal();
+		}
 
-			case "UI":
-				database = UsableItemDatabase.values();
-				break;
+	}
 
-			case "BI":
-				database = BattleItemDatabase.values();
-				break;
+	@Nullable
+	private static Item unpackGearItem(@Nonnull String token) {
+		int dash = token.indexOf('-');
+		int colon = token.indexOf(':', dash + 1);
+		if (dash != 2 || colon < 0)
+			return null;
 
-			case "HI":
-				database = HealingItemDatabase.values();
-				break;
+		int level;
+		try {
+			level = Integer.parseInt(token, dash + 1, colon, 10);
+		} catch (NumberFormatException e) {
+			return null;
+		}
 
-			default:
-				return null;
+		String identification = token.substring(colon + 1);
+		if (token.startsWith("WI")) {
+			WeaponDatabase type = TokenIndex.WEAPONS.get(identification);
+			return type == null ? null : getWeaponItem(type, level);
+
+		} else if (token.startsWith("AI")) {
+			ArmorDatabase type = TokenIndex.ARMORS.get(identification);
+			return type == null ? null : getArmorItem(type, level);
 		}
 
-		return findFromDatabase(database, split[1]);
-	};
-	public static final Function<IdentifiableObject, String> PACK_IDENTIFIABLE = io -> io.getDatabaseToken() + ":"
-			+ io.getIdentification();
-	////
+		return null;
+	}
+
+	/**
+	 * @return the only {@link WeaponItem} of the given type and level
+	 */
+	@Nonnull
+	public static WeaponItem getWeaponItem(@Nonnull WeaponDatabase type, int level) {
+		if (level < 0 || level > GearItem.MAX_GEAR_LEVEL)
+			return GearIndex.OVERLEVELED_WEAPON_ITEMS.computeIfAbsent(GearIndex.getKey(type, level),
+				k -> new WeaponItem(type, level));
+
+		return GearIndex.WEAPON_ITEMS[type.ordinal()][level];
+	}
+
+	/**
+	 * @return the only {@link ArmorItem} of the given type and level
+	 */
+	@Nonnull
+	public static ArmorItem getArmorItem(@Nonnull ArmorDatabase type, int level) {
+		if (level < 0 || level > GearItem.MAX_GEAR_LEVEL)
+			return GearIndex.OVERLEVELED_ARMOR_ITEMS.computeIfAbsent(GearIndex.getKey(type, level),
+				k -> new ArmorItem(type, level));
+
+		return GearIndex.ARMOR_ITEMS[type.ordinal()][level];
+	}
 
 	public static <T extends IdentifiableObject> IdentifiableObjectTypeAdapter<T> getTypeAdapterFactory(Function<String, T> unpackFunction) {
 		return new IdentifiableObjectTypeAdapter<>(unpackFunction);
@@ -400,10 +896,10 @@ public class Utilities {
 		for (GearDatabase gear : database) {
 			if (gear instanceof WeaponDatabase) {
 				if (!gear.equals(WeaponDatabase.FISTS))
-					result.add(new WeaponItem((WeaponDatabase) gear, 0));
+					result.add(getWeaponItem((WeaponDatabase) gear, 0));
 			} else {
 				if (!gear.equals(ArmorDatabase.NAKED))
-					result.add(new ArmorItem((ArmorDatabase) gear, 0));
+					result.add(getArmorItem((ArmorDatabase) gear, 0));
 			}
 		}
 
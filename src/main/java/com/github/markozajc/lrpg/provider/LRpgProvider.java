@@ -1,36 +1,558 @@
 package com.github.markozajc.lrpg.provider;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.LongPredicate;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.markozajc.lithium.data.providers.SnowflakeProvider;
 import com.github.markozajc.lrpg.game.LRpgExposed;
 import com.github.markozajc.lrpg.game.Player;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import net.dv8tion.jda.core.entities.User;
 
 public class LRpgProvider extends SnowflakeProvider<Player> {
 
+	private static final Logger LOG = LoggerFactory.getLogger("LRPG");
+
 	private static final TypeToken<Map<Long, Player>> TYPE_TOKEN = new TypeToken<>() {};
-	private static final LongPredicate FILTER = id -> false;
 	private static final Gson GSON = LRpgExposed.registerGsonTypeAdapters(new GsonBuilder()).create();
 
+	@Nullable
+	private PlayerStore store;
+	@Nullable
+	private SavePipeline pipeline;
+	@Nullable
+	private PlayerJournal journal;
+	@Nullable
+	private ScheduledExecutorService flusher;
+	@Nullable
+	private PlayerArchive archive;
+	private long archiveAfter;
+	private final LongPredicate obsoleteFilter = id -> {
+		PlayerArchive currentArchive = this.archive;
+		return currentArchive != null && currentArchive.contains(id);
+	};
+	// Archived players are no longer part of the live dataset
+	private final Map<Long, Boolean> recency = new LinkedHashMap<>(16, .75f, true);
+	// Access-ordered, the eldest entry is the least recently used player
+	private volatile int cacheSize;
+	@Nullable
+	private volatile Gson storeGson;
+	private final ReadWriteLock persistence = new ReentrantReadWriteLock();
+	// Held for reading while handing a player to the pipeline and the journal, and for
+	// writing while detaching them on shutdown
+
 	@Nonnull
 	public Player createPlayer(User user) {
 		Player player = LRpgExposed.getStarterPlayer();
 		this.data.put(user.getIdLong(), player);
+		track(user.getIdLong(), player);
+		markDirty(user, player);
 		return player;
 	}
 
 	public Player getPlayer(User user) {
-		return this.data.get(user.getIdLong());
+		long id = user.getIdLong();
+		Player player = this.data.get(id);
+		if (player == null)
+			player = hydrate(id);
+
+		if (player != null)
+			touch(id, player);
+
+		return track(id, player);
+	}
+
+	@Nullable
+	private synchronized Player hydrate(long id) {
+		Player player = this.data.get(id);
+		if (player != null)
+			return player;
+
+		PlayerStore currentStore = this.store;
+		if (currentStore == null)
+			return null;
+
+		if (!currentStore.isAvailable(id))
+			throw new UncheckedIOException(new IOException("Player " + id + " is in a part of the store that has failed."));
+
+		try {
+			if (currentStore.isLazy())
+				player = currentStore.load(id);
+
+			if (player == null)
+				player = restore(id, currentStore);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// Failing here is better than letting the caller create a new player over the stored one
+
+		if (player != null)
+			hydrated(id, player);
+
+		return player;
+	}
+
+	private synchronized void hydrated(long id, @Nonnull Player player) {
+		this.data.put(id, player);
+		if (this.cacheSize > 0)
+			this.recency.put(id, Boolean.TRUE);
+		// Players hydrated by the journal replay must be evictable as well, but nothing is
+		// evicted until the next flush, by which time the replayed players are compacted
+	}
+
+	@Nullable
+	private Player track(long id, @Nullable Player player) {
+		PlayerJournal currentJournal = this.journal;
+		if (player != null && currentJournal != null && player.getMutationListener() == null)
+			player.setMutationListener(currentJournal.listener(id));
+
+		return player;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// INCREMENTAL PERSISTENCE
+	//////////////////////////////////////////////////////////////////////////////////////
+	/**
+	 * Switches this provider to incremental persistence. Players stored in the
+	 * {@link PlayerStore} take precedence over the ones loaded by Lithium, and from now
+	 * on only the players marked with {@link #markDirty(User, Player)} are written on
+	 * {@link #flush()}. If the store is {@link PlayerStore#isLazy() lazy}, players are
+	 * only loaded from it when they're first accessed.<br>
+	 * Lithium no longer saves this provider's data from then on. Should be attached
+	 * before Lithium is started, in which case the players Lithium loads from its own
+	 * data are migrated into the store if it doesn't have them yet.
+	 */
+	public void attachStore(@Nonnull PlayerStore store) throws IOException {
+		attachStore(store, null);
+	}
+
+	/**
+	 * Same as {@link #attachStore(PlayerStore)}, but also attaches a
+	 * {@link PlayerArchive} that players are moved into by {@link #archive()} and
+	 * transparently restored from when they're next accessed.
+	 */
+	public synchronized void attachStore(@Nonnull PlayerStore store, @Nullable PlayerArchive archive) throws IOException {
+		if (archive != null)
+			this.data.keySet().removeIf(archive::contains);
+		// Lithium might still have stale copies of the archived players
+
+		if (store.isLazy()) {
+			for (Map.Entry<Long, Player> entry : this.data.entrySet())
+				if (!store.contains(entry.getKey()))
+					store.store(entry.getKey(), entry.getValue());
+			// Migrates the players loaded by Lithium that the store doesn't know about yet
+
+			this.data.clear();
+
+		} else {
+			this.data.putAll(store.loadAll());
+		}
+
+		if (archive != null) {
+			for (long id : new ArrayList<>(archive.getIds()))
+				if (store.isLazy() ? store.contains(id) : this.data.containsKey(id))
+					archive.delete(id);
+			// The bot must've stopped before the player was deleted from the store, the copies are the same
+		}
+
+		this.store = store;
+		this.pipeline = new SavePipeline(store);
+		this.archive = archive;
+		this.storeGson = LRpgExposed.registerGsonTypeAdapters(new GsonBuilder())
+				.registerTypeAdapter(TYPE_TOKEN.getType(), new LithiumDataAdapter())
+				.create();
+	}
+
+	/**
+	 * Takes the place of Lithium's whole-map save and load once a {@link PlayerStore}
+	 * is attached. Nothing is saved, as every player is already in the store, and
+	 * loaded players are only migrated into the store if it doesn't have them.
+	 */
+	private final class LithiumDataAdapter extends TypeAdapter<Map<Long, Player>> {
+
+		@Override
+		public void write(JsonWriter out, Map<Long, Player> value) throws IOException {
+			out.beginObject().endObject();
+		}
+
+		@Override
+		public Map<Long, Player> read(JsonReader in) throws IOException {
+			Map<Long, Player> loaded = GSON.getAdapter(TYPE_TOKEN).read(in);
+			if (loaded != null)
+				migrate(loaded);
+
+			return LRpgProvider.this.data;
+		}
+		// Lithium gets the players that are already loaded, rather than the stale copies
+
+	}
+
+	private synchronized void migrate(@Nonnull Map<Long, Player> loaded) throws IOException {
+		PlayerStore currentStore = this.store;
+		PlayerArchive currentArchive = this.archive;
+		if (currentStore == null)
+			return;
+
+		int migrated = 0;
+		for (Map.Entry<Long, Player> entry : loaded.entrySet()) {
+			long id = entry.getKey();
+			if (currentArchive != null && currentArchive.contains(id))
+				continue;
+
+			if (currentStore.isLazy() ? currentStore.contains(id) : this.data.containsKey(id))
+				continue;
+
+			currentStore.store(id, entry.getValue());
+			if (!currentStore.isLazy())
+				this.data.put(id, entry.getValue());
+			migrated++;
+		}
+
+		if (migrated > 0)
+			LOG.info("Migrated {} player(s) from Lithium's data into the player store.", migrated);
+	}
+
+	/**
+	 * Attaches a write-ahead journal to this provider. The journal is replayed over
+	 * the players loaded so far, after which every mutation of a player is journaled
+	 * as it happens. Requires a {@link PlayerStore} to be attached first, as that's
+	 * where the journal gets compacted into.
+	 */
+	public synchronized void attachJournal(@Nonnull PlayerJournal journal) throws IOException {
+		if (this.store == null)
+			throw new IllegalStateException("A PlayerStore must be attached before attaching a journal.");
+
+		journal.open(new PlayerJournal.ReplayTarget() {
+
+			@Override
+			public Player get(long id) {
+				return hydrate(id);
+			}
+
+			@Override
+			public void put(long id, Player player) {
+				hydrated(id, player);
+			}
+
+		}, new PlayerJournal.Compactor() {
+
+			@Override
+			public void compact(Set<Long> ids) throws IOException {
+				store(ids);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				SavePipeline currentPipeline = LRpgProvider.this.pipeline;
+				if (currentPipeline != null)
+					currentPipeline.flush();
+			}
+
+		});
+		this.journal = journal;
+	}
+
+	/**
+	 * Marks the player as changed. Must be called by the thread playing the player at
+	 * a point where its state is consistent, as that's when the copy that gets saved
+	 * is taken.
+	 */
+	public void markDirty(User user, @Nonnull Player player) {
+		long id = user.getIdLong();
+		player.setLastActive(System.currentTimeMillis());
+
+		this.persistence.readLock().lock();
+		try {
+			SavePipeline currentPipeline = this.pipeline;
+			PlayerJournal currentJournal = this.journal;
+			if (currentPipeline != null || currentJournal != null) {
+				Player copy = player.copy();
+				if (currentPipeline != null)
+					currentPipeline.submit(id, copy);
+				if (currentJournal != null)
+					currentJournal.record(id, copy);
+			}
+			// Both get the same copy, neither of them modifies it
+		} finally {
+			this.persistence.readLock().unlock();
+		}
+		// Once shut down, the player is no longer saved rather than failing the game
+
+		touch(id, player);
+	}
+
+	private void store(Set<Long> ids) throws IOException {
+		SavePipeline currentPipeline = this.pipeline;
+		if (currentPipeline == null)
+			return;
+
+		for (long id : ids) {
+			Player player = this.data.get(id);
+			if (player != null)
+				currentPipeline.submit(id, player.copy());
+		}
+		// Only called with the players replayed from the journal, before any of them are
+		// played. Later segments are covered by the copies taken by markDirty instead
+
+		currentPipeline.flush();
+	}
+
+	/**
+	 * Writes every player that has been marked as dirty since the last flush to the
+	 * attached {@link PlayerStore} and waits for them to be written. The players are
+	 * written on the save pipeline's own thread.
+	 *
+	 * @return the number of players written
+	 */
+	public int flush() throws IOException {
+		SavePipeline currentPipeline = this.pipeline;
+		if (currentPipeline == null)
+			return 0;
+
+		int flushed = currentPipeline.flush();
+		// Doesn't hold the lock while waiting for the disk
+
+		synchronized (this) {
+			evict(0);
+		}
+		// Players that were kept in memory only because they were dirty can go now
+
+		return flushed;
+	}
+
+	private boolean isDirty(long id) {
+		SavePipeline currentPipeline = this.pipeline;
+		return currentPipeline != null && currentPipeline.isPending(id);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// EVICTION
+	//////////////////////////////////////////////////////////////////////////////////////
+	/**
+	 * Bounds the number of players kept in memory. Once there are more, the least
+	 * recently used ones are evicted and loaded from the {@link PlayerStore} again
+	 * when they're next accessed. Players are only evicted after they've been flushed.
+	 * A cache size of 0 (the default) disables eviction.
+	 */
+	public synchronized void setCacheSize(@Nonnegative int cacheSize) {
+		PlayerStore currentStore = this.store;
+		if (cacheSize > 0 && (currentStore == null || !currentStore.isLazy()))
+			throw new IllegalStateException("Evicting players requires a lazy PlayerStore to be attached.");
+
+		this.cacheSize = cacheSize;
+		if (cacheSize == 0)
+			this.recency.clear();
+		else
+			evict(0);
+	}
+
+	private void touch(long id, @Nonnull Player player) {
+		if (this.cacheSize > 0)
+			admit(id, player);
+		// Doesn't contend for the lock unless eviction is enabled
+	}
+
+	private synchronized void admit(long id, @Nonnull Player player) {
+		if (this.cacheSize == 0)
+			return;
+
+		this.data.putIfAbsent(id, player);
+		// Readmits the player if it was evicted while it was still being played
+		this.recency.put(id, Boolean.TRUE);
+		evict(id);
+	}
+
+	private void evict(long keep) {
+		Iterator<Long> iterator = this.recency.keySet().iterator();
+		while (this.recency.size() > this.cacheSize && iterator.hasNext()) {
+			long id = iterator.next();
+			if (id == keep)
+				break;
+			// The kept player is always the most recently used one
+
+			if (isDirty(id))
+				continue;
+			// Dirty players are evicted after they're flushed
+
+			iterator.remove();
+			this.data.remove(id);
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// ARCHIVAL
+	//////////////////////////////////////////////////////////////////////////////////////
+	/**
+	 * Sets how long a player has to be inactive for to be archived. An idle time of 0
+	 * (the default) disables archival.
+	 */
+	public synchronized void setArchiveAfter(@Nonnegative long idleTime, @Nonnull TimeUnit unit) {
+		this.archiveAfter = unit.toMillis(idleTime);
+	}
+
+	/**
+	 * Moves the players that have been inactive for longer than the time set with
+	 * {@link #setArchiveAfter(long, TimeUnit)} from the {@link PlayerStore} to the
+	 * {@link PlayerArchive}. Only the players that are currently loaded are
+	 * considered, so with a lazy store, this doesn't reach the players that haven't
+	 * been accessed since startup.
+	 *
+	 * @return the number of players archived
+	 */
+	public synchronized int archive() throws IOException {
+		PlayerArchive currentArchive = this.archive;
+		PlayerStore currentStore = this.store;
+		if (currentArchive == null || currentStore == null || this.archiveAfter == 0)
+			return 0;
+
+		long now = System.currentTimeMillis();
+		int archived = 0;
+		for (Map.Entry<Long, Player> entry : new ArrayList<>(this.data.entrySet())) {
+			long id = entry.getKey();
+			Player player = entry.getValue();
+			if (player.getLastActive() == 0) {
+				player.setLastActive(now);
+				if (this.pipeline != null)
+					this.pipeline.submit(id, player.copy());
+				continue;
+			}
+			// Players saved before activity was tracked start idling now
+
+			if (now - player.getLastActive() < this.archiveAfter || isDirty(id))
+				continue;
+
+			currentArchive.store(id, player);
+			currentStore.delete(id);
+			this.data.remove(id, player);
+			this.recency.remove(id);
+			archived++;
+		}
+
+		return archived;
+	}
+
+	@Nullable
+	private Player restore(long id, @Nonnull PlayerStore currentStore) throws IOException {
+		PlayerArchive currentArchive = this.archive;
+		if (currentArchive == null)
+			return null;
+
+		Player player = currentArchive.load(id);
+		if (player != null) {
+			currentStore.store(id, player);
+			currentArchive.delete(id);
+			LOG.debug("Restored player {} from the archive.", id);
+		}
+
+		return player;
+	}
+
+	public synchronized void scheduleFlush(long interval, @Nonnull TimeUnit unit) {
+		if (this.flusher != null)
+			this.flusher.shutdown();
+
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "lrpg-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flusher.scheduleWithFixedDelay(() -> {
+			try {
+				int flushed = flush();
+				if (flushed > 0)
+					LOG.debug("Flushed {} player(s).", flushed);
+
+				int archived = archive();
+				if (archived > 0)
+					LOG.info("Archived {} inactive player(s).", archived);
+			} catch (IOException | RuntimeException e) {
+				LOG.error("Failed to flush players.", e);
+			}
+		}, interval, interval, unit);
+	}
+
+	/**
+	 * Flushes the remaining dirty players, writes a full snapshot and closes the
+	 * attached {@link PlayerStore} and {@link PlayerJournal}. Game sessions should be
+	 * stopped beforehand, as players marked dirty from then on are no longer saved.
+	 */
+	public synchronized void shutdown() throws IOException {
+		if (this.flusher != null) {
+			this.flusher.shutdown();
+			try {
+				this.flusher.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		PlayerStore currentStore = this.store;
+		SavePipeline currentPipeline;
+		PlayerJournal currentJournal;
+		this.persistence.writeLock().lock();
+		try {
+			currentPipeline = this.pipeline;
+			currentJournal = this.journal;
+			this.pipeline = null;
+			this.journal = null;
+		} finally {
+			this.persistence.writeLock().unlock();
+		}
+		// Stops accepting new copies before anything is closed
+
+		if (currentJournal != null)
+			currentJournal.close();
+		// Drains the entries appended so far
+
+		if (currentStore == null)
+			return;
+
+		if (currentPipeline != null) {
+			currentPipeline.flush();
+			currentPipeline.close();
+		}
+
+		Map<Long, Player> copies = new HashMap<>(this.data.size() * 2);
+		for (Map.Entry<Long, Player> entry : this.data.entrySet())
+			copies.put(entry.getKey(), entry.getValue().copy());
+		currentStore.snapshot(copies);
+		// Snapshots copies, so nothing that's still running can tear the written state
+		currentStore.close();
+		this.store = null;
+
+		if (currentJournal != null)
+			currentJournal.clear();
+		// The journal is redundant once the snapshot is written
 	}
 
+	//////////////////////////////////////////////////////////////////////////////////////
+	// LITHIUM
+	//////////////////////////////////////////////////////////////////////////////////////
 	@Override
 	public String getDataKey() {
 		return "lrpg";
@@ -43,12 +565,17 @@ public class LRpgProvider extends SnowflakeProvider<Player> {
 
 	@Override
 	protected LongPredicate getSnowflakeObsoleteFilter() {
-		return FILTER;
+		return this.obsoleteFilter;
 	}
 
+	/**
+	 * @return the Gson players are serialized with. Once a {@link PlayerStore} is
+	 *         attached, it no longer writes the whole map of players
+	 */
 	@Override
 	public Gson getGson() {
-		return GSON;
+		Gson currentGson = this.storeGson;
+		return currentGson != null ? currentGson : GSON;
 	}
 
 }
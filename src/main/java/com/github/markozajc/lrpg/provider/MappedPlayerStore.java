@@ -0,0 +1,493 @@
+package com.github.markozajc.lrpg.provider;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.markozajc.lrpg.game.Player;
+import com.github.markozajc.lrpg.game.Player.BinaryFormat;
+
+/**
+ * A {@link PlayerStore} that keeps players in a memory-mapped file of fixed-size
+ * slots, encoded with {@link BinaryFormat}. The slots double as an
+ * open-addressing hash table keyed by the user's snowflake, so opening the store
+ * is O(1) and a player is only decoded when it's first accessed.<br>
+ * Every slot holds two copies of the player, each with its own sequence number and
+ * checksum. An update overwrites the older copy, so a write torn by a crash leaves
+ * the newer one intact and the player is read from that instead.<br>
+ * The database enums limit the number of distinct items a player can hold, so a
+ * player always fits into the default slot size. Stores written with an older
+ * version of {@link BinaryFormat} or with single-copy slots are upgraded when
+ * they're opened.<br>
+ * The file is mapped as a single buffer, so it can't grow past 2 GiB. With the
+ * default slot size that's about 524,000 slots, or about 393,000 players at the
+ * maximum load factor. Storing a new player beyond that fails, so bigger
+ * deployments have to split the players over several files with a
+ * {@link ShardedPlayerStore}.
+ */
+public class MappedPlayerStore implements PlayerStore {
+
+	public static final int DEFAULT_SLOT_SIZE = 4096;
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final int MAGIC = 0x4C525047;
+	private static final int LAYOUT = 1;
+	// 0 (stores written before the layout was recorded) has a single copy per slot
+	private static final int HEADER_SIZE = 32;
+	private static final int COPIES = 2;
+	private static final int COPY_HEADER_SIZE = Integer.BYTES * 3;
+	private static final long EMPTY = 0L;
+	private static final float MAX_LOAD_FACTOR = .75f;
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	// Header layout
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int SLOT_SIZE_OFFSET = 8;
+	private static final int CAPACITY_OFFSET = 12;
+	private static final int USED_OFFSET = 16;
+	private static final int LAYOUT_OFFSET = 20;
+
+	// Slot layout
+	private static final int ID_OFFSET = 0;
+	private static final int COPIES_OFFSET = 8;
+
+	// Copy layout
+	private static final int SEQUENCE_OFFSET = 0;
+	private static final int LENGTH_OFFSET = 4;
+	private static final int CRC_OFFSET = 8;
+
+	// Single-copy slot layout
+	private static final int SINGLE_LENGTH_OFFSET = 8;
+	private static final int SINGLE_CRC_OFFSET = 12;
+	private static final int SINGLE_HEADER_SIZE = 16;
+
+	@Nonnull
+	private final Path path;
+	private final int slotSize;
+	private final int copySize;
+	@Nonnull
+	private final ByteBuffer scratch;
+	@Nonnull
+	private final ByteBuffer copyHeader = ByteBuffer.allocate(Integer.BYTES * 2);
+	@Nonnull
+	private final CRC32 crc = new CRC32();
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int capacity;
+	private int used;
+
+	public MappedPlayerStore(@Nonnull Path path) throws IOException {
+		this(path, DEFAULT_SLOT_SIZE, DEFAULT_CAPACITY);
+	}
+
+	public MappedPlayerStore(@Nonnull Path path, int slotSize, int initialCapacity) throws IOException {
+		this.path = path;
+
+		if (Files.exists(path)) {
+			map(path);
+			if (this.buffer.getInt(MAGIC_OFFSET) != MAGIC)
+				throw new IOException(path + " is not a player store.");
+
+			int version = this.buffer.getInt(VERSION_OFFSET);
+			if (version < 1 || version > BinaryFormat.VERSION)
+				throw new IOException(path + " uses an unsupported version of the binary format (" + version + ").");
+
+			int layout = this.buffer.getInt(LAYOUT_OFFSET);
+			if (layout < 0 || layout > LAYOUT)
+				throw new IOException(path + " uses an unsupported slot layout (" + layout + ").");
+
+			int fileSlotSize = this.buffer.getInt(SLOT_SIZE_OFFSET);
+			this.slotSize = layout == LAYOUT ? fileSlotSize
+					: COPIES_OFFSET + COPIES * (fileSlotSize - SINGLE_HEADER_SIZE + COPY_HEADER_SIZE);
+			// Single-copy slots are widened so the records keep the room they had
+			this.copySize = (this.slotSize - COPIES_OFFSET) / COPIES;
+			this.capacity = this.buffer.getInt(CAPACITY_OFFSET);
+			this.used = this.buffer.getInt(USED_OFFSET);
+			this.scratch = ByteBuffer.allocate(this.copySize - COPY_HEADER_SIZE);
+
+			if (version < BinaryFormat.VERSION || layout < LAYOUT)
+				upgrade(version, layout, fileSlotSize);
+
+		} else {
+			this.slotSize = slotSize;
+			this.copySize = (this.slotSize - COPIES_OFFSET) / COPIES;
+			this.capacity = initialCapacity;
+			this.scratch = ByteBuffer.allocate(this.copySize - COPY_HEADER_SIZE);
+			create(path, initialCapacity);
+			map(path);
+		}
+	}
+
+	@Override
+	public boolean isLazy() {
+		return true;
+	}
+
+	@Override
+	public synchronized boolean contains(long id) {
+		return find(id) >= 0;
+	}
+
+	@Override
+	public synchronized Player load(long id) throws IOException {
+		int slot = find(id);
+		if (slot < 0)
+			return null;
+
+		return read(slot, BinaryFormat.VERSION);
+	}
+
+	@Override
+	public synchronized void store(long id, Player player) throws IOException {
+		if (id == EMPTY)
+			throw new IllegalArgumentException("Can't store a player with an ID of " + EMPTY + ".");
+
+		this.scratch.clear();
+		try {
+			BinaryFormat.write(player, this.scratch);
+		} catch (BufferOverflowException e) {
+			throw new IOException("Player " + id + " doesn't fit into a slot of " + this.slotSize + " bytes.", e);
+		}
+		this.scratch.flip();
+
+		int slot = find(id);
+		if (slot >= 0) {
+			update(slot, this.scratch);
+			return;
+		}
+
+		if (this.used + 1 > this.capacity * MAX_LOAD_FACTOR) {
+			grow();
+			slot = find(id);
+		}
+
+		insert(-slot - 1, id, this.scratch);
+		this.used++;
+		this.buffer.putInt(USED_OFFSET, this.used);
+	}
+
+	@Override
+	public synchronized void delete(long id) {
+		int hole = find(id);
+		if (hole < 0)
+			return;
+
+		int slot = (hole + 1) % this.capacity;
+		while (true) {
+			long slotId = this.buffer.getLong(getOffset(slot) + ID_OFFSET);
+			if (slotId == EMPTY)
+				break;
+
+			int home = getHomeSlot(slotId, this.capacity);
+			boolean reachable = hole <= slot ? home > hole && home <= slot : home > hole || home <= slot;
+			if (!reachable) {
+				move(slot, hole);
+				hole = slot;
+			}
+			// Moves back the entries that would become unreachable through the hole
+
+			slot = (slot + 1) % this.capacity;
+		}
+		// Backward shift deletion, keeps the probe sequences intact without tombstones
+
+		this.buffer.putLong(getOffset(hole) + ID_OFFSET, EMPTY);
+		this.used--;
+		this.buffer.putInt(USED_OFFSET, this.used);
+	}
+
+	@Override
+	public synchronized Map<Long, Player> loadAll() throws IOException {
+		Map<Long, Player> players = new HashMap<>(this.used * 2);
+		for (int slot = 0; slot < this.capacity; slot++) {
+			long id = this.buffer.getLong(getOffset(slot) + ID_OFFSET);
+			if (id != EMPTY)
+				players.put(id, read(slot, BinaryFormat.VERSION));
+		}
+
+		return players;
+	}
+
+	@Override
+	public synchronized void snapshot(Map<Long, Player> players) throws IOException {
+		for (Map.Entry<Long, Player> entry : players.entrySet())
+			store(entry.getKey(), entry.getValue());
+
+		this.buffer.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.buffer.force();
+		this.channel.close();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// SLOTS
+	//////////////////////////////////////////////////////////////////////////////////////
+	/**
+	 * @return the slot of the player or {@code -(insertion slot) - 1} if the player is
+	 *         not in the store
+	 */
+	private int find(long id) {
+		int slot = getHomeSlot(id, this.capacity);
+		while (true) {
+			long slotId = this.buffer.getLong(getOffset(slot) + ID_OFFSET);
+			if (slotId == id)
+				return slot;
+
+			if (slotId == EMPTY)
+				return -slot - 1;
+
+			slot = (slot + 1) % this.capacity;
+		}
+		// Linear probing, the load factor guarantees there's always an empty slot
+	}
+
+	private static int getHomeSlot(long id, int capacity) {
+		return (int) Long.remainderUnsigned(id * 0x9E3779B97F4A7C15L, capacity);
+	}
+
+	private int getOffset(int slot) {
+		return getOffset(slot, this.slotSize);
+	}
+
+	private static int getOffset(int slot, int slotSize) {
+		return (int) (HEADER_SIZE + (long) slot * slotSize);
+	}
+	// The file never grows past Integer.MAX_VALUE, see grow()
+
+	private int getCopyOffset(int slot, int copy) {
+		return getOffset(slot) + COPIES_OFFSET + copy * this.copySize;
+	}
+
+	@Nonnull
+	private Player read(int slot, int version) throws IOException {
+		int newest = getNewestCopy(slot);
+		if (newest < 0)
+			throw new IOException("Player " + this.buffer.getLong(getOffset(slot) + ID_OFFSET) + " in " + this.path
+					+ " is corrupted.");
+
+		return BinaryFormat.read(getRecord(getCopyOffset(slot, newest)), version);
+	}
+
+	/**
+	 * @return the intact copy with the highest sequence number or -1 if neither copy
+	 *         is intact
+	 */
+	private int getNewestCopy(int slot) {
+		int newest = -1;
+		int newestSequence = 0;
+		for (int copy = 0; copy < COPIES; copy++) {
+			int offset = getCopyOffset(slot, copy);
+			int sequence = this.buffer.getInt(offset + SEQUENCE_OFFSET);
+			if (getRecord(offset) != null && (newest < 0 || sequence - newestSequence > 0)) {
+				newest = copy;
+				newestSequence = sequence;
+			}
+		}
+		// Compares the sequence numbers so they can wrap around
+
+		return newest;
+	}
+
+	/**
+	 * @return the record held by the copy or {@code null} if the copy is empty or has
+	 *         been torn
+	 */
+	@Nullable
+	private ByteBuffer getRecord(int offset) {
+		int sequence = this.buffer.getInt(offset + SEQUENCE_OFFSET);
+		int length = this.buffer.getInt(offset + LENGTH_OFFSET);
+		if (sequence == 0 || length < 0 || length > this.copySize - COPY_HEADER_SIZE)
+			return null;
+
+		ByteBuffer record = this.buffer.duplicate();
+		record.position(offset + COPY_HEADER_SIZE).limit(offset + COPY_HEADER_SIZE + length);
+		if (checksum(sequence, record) != this.buffer.getInt(offset + CRC_OFFSET))
+			return null;
+
+		return record;
+	}
+
+	private int checksum(int sequence, @Nonnull ByteBuffer record) {
+		this.copyHeader.clear();
+		this.copyHeader.putInt(sequence).putInt(record.remaining()).flip();
+
+		this.crc.reset();
+		this.crc.update(this.copyHeader);
+		this.crc.update(record.duplicate());
+		return (int) this.crc.getValue();
+	}
+	// Covers the sequence number and the length as well, so a copy is only valid as a whole
+
+	private void insert(int slot, long id, @Nonnull ByteBuffer record) {
+		for (int copy = 0; copy < COPIES; copy++)
+			this.buffer.putInt(getCopyOffset(slot, copy) + SEQUENCE_OFFSET, 0);
+		// Clears whatever a deleted player has left behind
+
+		writeCopy(getCopyOffset(slot, 0), 1, record);
+		this.buffer.putLong(getOffset(slot) + ID_OFFSET, id);
+		// The ID is written last so a slot is never claimed before it holds a record
+	}
+
+	private void update(int slot, @Nonnull ByteBuffer record) {
+		int newest = getNewestCopy(slot);
+		int target = newest == 0 ? 1 : 0;
+		int sequence = this.buffer.getInt(getCopyOffset(slot, newest < 0 ? target : newest) + SEQUENCE_OFFSET) + 1;
+		if (sequence == 0)
+			sequence = 1;
+		// 0 marks an empty copy
+
+		writeCopy(getCopyOffset(slot, target), sequence, record);
+	}
+	// Only the older copy is overwritten, the newer one stays intact until the write is done
+
+	private void writeCopy(int offset, int sequence, @Nonnull ByteBuffer record) {
+		int checksum = checksum(sequence, record);
+
+		ByteBuffer target = this.buffer.duplicate();
+		target.position(offset + COPY_HEADER_SIZE);
+		target.put(record.duplicate());
+		this.buffer.putInt(offset + LENGTH_OFFSET, record.remaining());
+		this.buffer.putInt(offset + CRC_OFFSET, checksum);
+		this.buffer.putInt(offset + SEQUENCE_OFFSET, sequence);
+	}
+
+	private void move(int from, int to) {
+		int source = getOffset(from);
+		int target = getOffset(to);
+
+		ByteBuffer copies = this.buffer.duplicate();
+		copies.position(source + COPIES_OFFSET).limit(source + this.slotSize);
+		ByteBuffer destination = this.buffer.duplicate();
+		destination.position(target + COPIES_OFFSET);
+		destination.put(copies);
+		this.buffer.putLong(target + ID_OFFSET, this.buffer.getLong(source + ID_OFFSET));
+	}
+
+	private void grow() throws IOException {
+		int maxCapacity = (Integer.MAX_VALUE - HEADER_SIZE) / this.slotSize;
+		if (this.capacity >= maxCapacity)
+			throw new IOException(this.path + " is full, it can't hold more than " + (int) (maxCapacity * MAX_LOAD_FACTOR)
+					+ " players with slots of " + this.slotSize + " bytes. Split the players over more shards.");
+
+		int newCapacity = (int) Math.min(this.capacity * 2L, maxCapacity);
+		// The last step only grows up to the limit, so none of the room under it is wasted
+
+		Path temporary = this.path.resolveSibling(this.path.getFileName() + TEMPORARY_SUFFIX);
+		create(temporary, newCapacity);
+		try (FileChannel newChannel = FileChannel.open(temporary, READ, WRITE)) {
+			MappedByteBuffer newBuffer = newChannel.map(MapMode.READ_WRITE, 0, newChannel.size());
+			newBuffer.putInt(USED_OFFSET, this.used);
+
+			for (int slot = 0; slot < this.capacity; slot++) {
+				int offset = getOffset(slot);
+				long id = this.buffer.getLong(offset + ID_OFFSET);
+				if (id == EMPTY)
+					continue;
+
+				int newSlot = getHomeSlot(id, newCapacity);
+				while (newBuffer.getLong(getOffset(newSlot, this.slotSize) + ID_OFFSET) != EMPTY)
+					newSlot = (newSlot + 1) % newCapacity;
+
+				ByteBuffer source = this.buffer.duplicate();
+				source.position(offset).limit(offset + this.slotSize);
+				ByteBuffer target = newBuffer.duplicate();
+				target.position(getOffset(newSlot, this.slotSize));
+				target.put(source);
+			}
+			// Rehashes all of the slots into the new file
+
+			newBuffer.force();
+		}
+
+		this.buffer.force();
+		this.channel.close();
+		Files.move(temporary, this.path, REPLACE_EXISTING, ATOMIC_MOVE);
+		map(this.path);
+		this.capacity = newCapacity;
+	}
+
+	/**
+	 * Rewrites all of the players with the current version of {@link BinaryFormat}
+	 * and the current slot layout. The players are written into a new file that
+	 * replaces this one, so a failed upgrade leaves the old file intact.
+	 */
+	private void upgrade(int version, int layout, int fileSlotSize) throws IOException {
+		Map<Long, Player> players = new HashMap<>(this.used * 2);
+		for (int slot = 0; slot < this.capacity; slot++) {
+			long id = this.buffer.getLong(getOffset(slot, fileSlotSize) + ID_OFFSET);
+			if (id != EMPTY)
+				players.put(id, layout == LAYOUT ? read(slot, version) : readSingle(slot, fileSlotSize, version));
+		}
+
+		Path temporary = this.path.resolveSibling(this.path.getFileName() + TEMPORARY_SUFFIX);
+		create(temporary, this.capacity);
+		this.channel.close();
+		map(temporary);
+		this.used = 0;
+		for (Map.Entry<Long, Player> entry : players.entrySet())
+			store(entry.getKey(), entry.getValue());
+		// Never grows, as the capacity is the same as before
+		this.buffer.force();
+		this.channel.close();
+
+		Files.move(temporary, this.path, REPLACE_EXISTING, ATOMIC_MOVE);
+		map(this.path);
+	}
+
+	@Nonnull
+	private Player readSingle(int slot, int fileSlotSize, int version) throws IOException {
+		int offset = getOffset(slot, fileSlotSize);
+		int length = this.buffer.getInt(offset + SINGLE_LENGTH_OFFSET);
+
+		ByteBuffer record = this.buffer.duplicate();
+		record.position(offset + SINGLE_HEADER_SIZE).limit(offset + SINGLE_HEADER_SIZE + length);
+
+		this.crc.reset();
+		this.crc.update(record.duplicate());
+		if ((int) this.crc.getValue() != this.buffer.getInt(offset + SINGLE_CRC_OFFSET))
+			throw new IOException("Player " + this.buffer.getLong(offset + ID_OFFSET) + " in " + this.path
+					+ " is corrupted.");
+
+		return BinaryFormat.read(record, version);
+	}
+
+	private void create(@Nonnull Path file, int slots) throws IOException {
+		try (FileChannel newChannel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+			MappedByteBuffer header = newChannel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * this.slotSize);
+			header.putInt(MAGIC_OFFSET, MAGIC);
+			header.putInt(VERSION_OFFSET, BinaryFormat.VERSION);
+			header.putInt(SLOT_SIZE_OFFSET, this.slotSize);
+			header.putInt(CAPACITY_OFFSET, slots);
+			header.putInt(USED_OFFSET, 0);
+			header.putInt(LAYOUT_OFFSET, LAYOUT);
+			header.force();
+		}
+	}
+
+	private void map(@Nonnull Path file) throws IOException {
+		this.channel = FileChannel.open(file, READ, WRITE);
+		this.buffer = this.channel.map(MapMode.READ_WRITE, 0, this.channel.size());
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.github.markozajc.lrpg.provider;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.markozajc.lrpg.game.Player;
+import com.google.gson.Gson;
+
+/**
+ * A cold tier for players that haven't played in a long time. Each archived player
+ * is kept in its own GZIP-compressed JSON file, only the IDs of the archived players
+ * are kept in memory.
+ */
+public class PlayerArchive {
+
+	private static final String ARCHIVE_SUFFIX = ".json.gz";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	@Nonnull
+	private final Path directory;
+	@Nonnull
+	private final Gson gson;
+	@Nonnull
+	private final Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+	public PlayerArchive(@Nonnull Path directory, @Nonnull Gson gson) throws IOException {
+		this.directory = directory;
+		this.gson = gson;
+
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ARCHIVE_SUFFIX)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				this.ids.add(Long.parseLong(name.substring(0, name.length() - ARCHIVE_SUFFIX.length())));
+			}
+		}
+		// Only the file names are read, the players themselves stay compressed
+	}
+
+	public boolean contains(long id) {
+		return this.ids.contains(id);
+	}
+
+	@Nonnull
+	public Set<Long> getIds() {
+		return this.ids;
+	}
+
+	@Nullable
+	public Player load(long id) throws IOException {
+		if (!contains(id))
+			return null;
+
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(getFile(id))), UTF_8)) {
+			return this.gson.fromJson(reader, Player.class);
+		}
+	}
+
+	public void store(long id, @Nonnull Player player) throws IOException {
+		Path file = getFile(id);
+		Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+		try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temporary)), UTF_8)) {
+			this.gson.toJson(player, Player.class, writer);
+		}
+		Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+
+		this.ids.add(id);
+	}
+
+	public void delete(long id) throws IOException {
+		this.ids.remove(id);
+		Files.deleteIfExists(getFile(id));
+	}
+
+	@Nonnull
+	private Path getFile(long id) {
+		return this.directory.resolve(id + ARCHIVE_SUFFIX);
+	}
+
+}
@@ -0,0 +1,606 @@
+package com.github.markozajc.lrpg.provider;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markozajc.lrpg.game.Items.ArmorItem;
+import com.github.markozajc.lrpg.game.Items.Inventory;
+import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.WeaponItem;
+import com.github.markozajc.lrpg.game.Player;
+import com.github.markozajc.lrpg.game.Player.MutationListener;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon;
+import com.github.markozajc.lrpg.game.Utilities;
+import com.google.gson.Gson;
+
+/**
+ * An append-only write-ahead journal of player mutations. Typed events (gold, XP,
+ * gear, inventory, health and step changes, and entering and leaving the dungeon)
+ * are appended as they happen, while a full record of the player is appended on
+ * every checkpoint to cover the changes that don't have their own event (eg. the
+ * state of a fight). Events are replayed in order over the player's last record, or
+ * over the stored player if the journal has none.<br>
+ * Events are written by a dedicated thread that fsyncs them in groups. Once a
+ * segment grows past its size limit, a new one is started. A full segment is
+ * deleted in the background once every player in it has a record after its last
+ * typed event, as the copy of the player that record was taken with has then been
+ * handed to the {@link Compactor} and everything the segment holds is persisted
+ * after {@link Compactor#flush()}. Segments are deleted in order, so the ones that
+ * are left can always be replayed.
+ */
+public class PlayerJournal implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger("LRPG");
+
+	public static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+	private static final String SEGMENT_SUFFIX = ".wal";
+	private static final int FRAME_OVERHEAD = Integer.BYTES * 2;
+
+	public static interface Compactor {
+
+		/**
+		 * Persists the current state of the given players, making the journal entries
+		 * concerning them redundant. Only called by
+		 * {@link PlayerJournal#open(ReplayTarget, Compactor)} with the players it has
+		 * replayed.
+		 */
+		public void compact(@Nonnull Set<Long> ids) throws IOException;
+
+		/**
+		 * Persists the copies of the players that have been recorded so far. Called
+		 * before deleting a segment, from the journal's compaction thread.
+		 */
+		public void flush() throws IOException;
+
+	}
+
+	/**
+	 * The players the journal is replayed over.
+	 */
+	public static interface ReplayTarget {
+
+		/**
+		 * @return the player, loaded the same way as when it's accessed, or {@code null}
+		 *         if there's no such player
+		 */
+		@Nullable
+		public Player get(long id);
+
+		/**
+		 * Replaces the player with a record from the journal.
+		 */
+		public void put(long id, @Nonnull Player player);
+
+	}
+
+	private enum EventType {
+		RECORD,
+		GOLD,
+		XP,
+		ITEM,
+		HP,
+		STEP,
+		ARMOR,
+		WEAPON,
+		DUNGEON_ENTERED,
+		DUNGEON_LEFT;
+
+		private static final EventType[] VALUES = values();
+
+	}
+
+	private static class Entry {
+
+		private static final Entry CLOSE = new Entry(-1, new byte[0], null);
+
+		private final long id;
+		@Nullable
+		private byte[] body;
+		// Records are only encoded by the writer thread
+		@Nullable
+		private final Player record;
+
+		private Entry(long id, @Nullable byte[] body, @Nullable Player record) {
+			this.id = id;
+			this.body = body;
+			this.record = record;
+		}
+
+	}
+
+	private static class Segment {
+
+		@Nonnull
+		private final Path path;
+		@Nonnull
+		private final Set<Long> uncovered = new HashSet<>();
+		// Players whose typed events in this segment aren't followed by a record yet
+
+		private Segment(@Nonnull Path path) {
+			this.path = path;
+		}
+
+	}
+
+	@Nonnull
+	private final Path directory;
+	@Nonnull
+	private final Gson gson;
+	private final long segmentSize;
+	@Nonnull
+	private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+	@Nonnull
+	private final ExecutorService compactions = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "lrpg-journal-compaction");
+		thread.setDaemon(true);
+		return thread;
+	});
+	@Nonnull
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	// Guarded by itself, the last one is being written to
+	@Nullable
+	private Thread writer;
+	@Nullable
+	private Compactor compactor;
+
+	// Only accessed by the writer thread after open()
+	private long segment;
+	private FileChannel channel;
+
+	public PlayerJournal(@Nonnull Path directory, @Nonnull Gson gson) throws IOException {
+		this(directory, gson, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public PlayerJournal(@Nonnull Path directory, @Nonnull Gson gson, long segmentSize) throws IOException {
+		this.directory = directory;
+		this.gson = gson;
+		this.segmentSize = segmentSize;
+
+		Files.createDirectories(directory);
+	}
+
+	/**
+	 * Replays all existing segments over the given players, compacts them with the
+	 * given {@link Compactor} and starts appending to a fresh segment.
+	 */
+	public synchronized void open(@Nonnull ReplayTarget players, @Nonnull Compactor compactor) throws IOException {
+		if (this.writer != null)
+			throw new IllegalStateException("This journal is already open.");
+
+		List<Path> segments = getSegments();
+		Set<Long> replayed = new HashSet<>();
+		for (Path segmentPath : segments)
+			replay(segmentPath, players, replayed);
+		// Replays the segments in order
+
+		compactor.compact(replayed);
+		for (Path segmentPath : segments)
+			Files.delete(segmentPath);
+		// Everything replayed is now in the store
+
+		this.segment = segments.isEmpty() ? 0 : getSegmentNumber(segments.get(segments.size() - 1)) + 1;
+		openSegment();
+
+		this.compactor = compactor;
+		Thread thread = new Thread(this::write, "lrpg-journal");
+		thread.setDaemon(true);
+		thread.start();
+		this.writer = thread;
+
+		if (!replayed.isEmpty())
+			LOG.info("Replayed journal entries of {} player(s).", replayed.size());
+	}
+
+	/**
+	 * Creates a listener that journals the typed mutations of the player with the
+	 * given ID.
+	 */
+	@Nonnull
+	public MutationListener listener(long id) {
+		return new MutationListener() {
+
+			@Override
+			public void goldChanged(long gold) {
+				append(id, EventType.GOLD, out -> out.writeLong(gold));
+			}
+
+			@Override
+			public void xpChanged(long xp) {
+				append(id, EventType.XP, out -> out.writeLong(xp));
+			}
+
+			@Override
+			public void itemChanged(Item item, int quantity) {
+				append(id, EventType.ITEM, out -> {
+					out.writeUTF(Utilities.PACK_IDENTIFIABLE.apply(item));
+					out.writeInt(quantity);
+				});
+			}
+
+			@Override
+			public void hpChanged(int hp) {
+				append(id, EventType.HP, out -> out.writeInt(hp));
+			}
+
+			@Override
+			public void stepChanged(int step) {
+				append(id, EventType.STEP, out -> out.writeInt(step));
+			}
+
+			@Override
+			public void armorChanged(ArmorItem armor) {
+				append(id, EventType.ARMOR, out -> out.writeUTF(Utilities.PACK_IDENTIFIABLE.apply(armor)));
+			}
+
+			@Override
+			public void weaponChanged(WeaponItem weapon) {
+				append(id, EventType.WEAPON, out -> out.writeUTF(Utilities.PACK_IDENTIFIABLE.apply(weapon)));
+			}
+
+			@Override
+			public void dungeonEntered() {
+				append(id, EventType.DUNGEON_ENTERED, out -> {});
+			}
+
+			@Override
+			public void dungeonLeft() {
+				append(id, EventType.DUNGEON_LEFT, out -> {});
+			}
+
+		};
+	}
+
+	/**
+	 * Appends a full record of the player, superseding all of its earlier entries. The
+	 * record is serialized on the journal's own thread, so the given copy must not be
+	 * modified afterwards.
+	 */
+	public void record(long id, @Nonnull Player copy) {
+		this.queue.add(new Entry(id, null, copy));
+	}
+
+	/**
+	 * Deletes all segments. Should only be called after the journal has been closed
+	 * and all players have been persisted.
+	 */
+	public synchronized void clear() throws IOException {
+		if (this.writer != null)
+			throw new IllegalStateException("This journal must be closed before clearing it.");
+
+		for (Path segmentPath : getSegments())
+			Files.delete(segmentPath);
+		synchronized (this.segments) {
+			this.segments.clear();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		Thread thread = this.writer;
+		if (thread == null)
+			return;
+
+		this.queue.add(Entry.CLOSE);
+		try {
+			thread.join();
+			this.compactions.shutdown();
+			this.compactions.awaitTermination(1, TimeUnit.MINUTES);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.writer = null;
+		this.channel.close();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// WRITING
+	//////////////////////////////////////////////////////////////////////////////////////
+	private static interface EventWriter {
+
+		public void write(DataOutputStream out) throws IOException;
+
+	}
+
+	private void append(long id, @Nonnull EventType type, @Nonnull EventWriter payload) {
+		this.queue.add(new Entry(id, encode(id, type, payload), null));
+	}
+
+	@Nonnull
+	private static byte[] encode(long id, @Nonnull EventType type, @Nonnull EventWriter payload) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(body)) {
+			out.writeByte(type.ordinal());
+			out.writeLong(id);
+			payload.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return body.toByteArray();
+	}
+
+	private void write() {
+		List<Entry> batch = new ArrayList<>();
+		CRC32 crc = new CRC32();
+		boolean closing = false;
+
+		while (!closing) {
+			try {
+				batch.add(this.queue.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			this.queue.drainTo(batch);
+			// Groups all of the entries queued up in the meantime
+
+			int size = 0;
+			for (Entry entry : batch) {
+				Player player = entry.record;
+				if (player != null) {
+					try {
+						entry.body = encode(entry.id, EventType.RECORD,
+							out -> out.write(this.gson.toJson(player).getBytes(UTF_8)));
+					} catch (RuntimeException e) {
+						LOG.error("Failed to journal a record of player {}.", entry.id, e);
+						continue;
+					}
+				}
+
+				size += entry.body.length + FRAME_OVERHEAD;
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			synchronized (this.segments) {
+				for (Entry entry : batch) {
+					if (entry == Entry.CLOSE) {
+						closing = true;
+						continue;
+					}
+
+					if (entry.body == null)
+						continue;
+					// A record that failed to serialize
+
+					crc.reset();
+					crc.update(entry.body);
+					buffer.putInt(entry.body.length).put(entry.body).putInt((int) crc.getValue());
+
+					if (entry.record != null) {
+						for (Segment covered : this.segments)
+							covered.uncovered.remove(entry.id);
+						// The copy taken with the record includes every earlier event
+					} else {
+						this.segments.getLast().uncovered.add(entry.id);
+					}
+				}
+			}
+			buffer.flip();
+			batch.clear();
+
+			try {
+				while (buffer.hasRemaining())
+					this.channel.write(buffer);
+				this.channel.force(false);
+				// One fsync for the whole group
+
+				if (!closing && this.channel.position() >= this.segmentSize)
+					rotate();
+
+			} catch (IOException e) {
+				LOG.error("Failed to write to the journal.", e);
+			}
+		}
+	}
+
+	private void rotate() throws IOException {
+		this.channel.close();
+		this.segment++;
+		openSegment();
+
+		this.compactions.execute(this::compact);
+	}
+
+	private void compact() {
+		List<Segment> covered = new ArrayList<>();
+		synchronized (this.segments) {
+			for (Segment full : this.segments) {
+				if (full == this.segments.getLast() || !full.uncovered.isEmpty())
+					break;
+				covered.add(full);
+			}
+		}
+		// Taken before flushing, so the copies that cover these segments are already submitted
+
+		Compactor currentCompactor = this.compactor;
+		if (covered.isEmpty() || currentCompactor == null)
+			return;
+
+		try {
+			currentCompactor.flush();
+			for (Segment full : covered) {
+				Files.delete(full.path);
+				synchronized (this.segments) {
+					this.segments.remove(full);
+				}
+			}
+
+		} catch (IOException | RuntimeException e) {
+			LOG.error("Failed to compact the journal, its segments will be replayed on the next startup.", e);
+		}
+	}
+
+	private void openSegment() throws IOException {
+		Path segmentPath = getSegmentPath(this.segment);
+		this.channel = FileChannel.open(segmentPath, CREATE_NEW, WRITE);
+		synchronized (this.segments) {
+			this.segments.add(new Segment(segmentPath));
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// REPLAYING
+	//////////////////////////////////////////////////////////////////////////////////////
+	private void replay(@Nonnull Path segmentPath, @Nonnull ReplayTarget players, @Nonnull Set<Long> replayed)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath));
+		CRC32 crc = new CRC32();
+
+		while (buffer.remaining() >= FRAME_OVERHEAD) {
+			int length = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+				LOG.warn("Journal segment {} ends with a torn entry, ignoring the rest of it.", segmentPath);
+				return;
+			}
+
+			byte[] body = new byte[length];
+			buffer.get(body);
+			crc.reset();
+			crc.update(body);
+			if ((int) crc.getValue() != buffer.getInt()) {
+				LOG.warn("Journal segment {} contains a corrupted entry, ignoring the rest of it.", segmentPath);
+				return;
+			}
+
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+				EventType type = EventType.VALUES[in.readUnsignedByte()];
+				long id = in.readLong();
+				apply(type, id, in, body.length - Byte.BYTES - Long.BYTES, players);
+				replayed.add(id);
+			}
+		}
+	}
+
+	private void apply(@Nonnull EventType type, long id, @Nonnull DataInputStream in, int payloadLength,
+					   @Nonnull ReplayTarget players) throws IOException {
+		if (type == EventType.RECORD) {
+			byte[] json = new byte[payloadLength];
+			in.readFully(json);
+			players.put(id, this.gson.fromJson(new String(json, UTF_8), Player.class));
+			return;
+		}
+
+		Player player = players.get(id);
+		if (player == null)
+			return;
+		// Typed events always follow a record or a snapshot of the player
+
+		PlayerDungeon dungeon = player.getPlayerDungeon();
+		switch (type) {
+			case GOLD:
+				player.setGold(in.readLong());
+				break;
+
+			case XP:
+				player.setXp(in.readLong());
+				break;
+
+			case ITEM:
+				Item item = Utilities.UNPACK_ITEM.apply(in.readUTF());
+				if (item != null)
+					setQuantity(player.getInventory(), item, in.readInt());
+				break;
+
+			case HP:
+				if (dungeon != null)
+					dungeon.setHp(in.readInt(), player.getMaxHp());
+				break;
+
+			case STEP:
+				if (dungeon != null)
+					dungeon.setStep(in.readInt());
+				break;
+
+			case ARMOR:
+				Item armor = Utilities.UNPACK_ITEM.apply(in.readUTF());
+				if (armor instanceof ArmorItem)
+					player.setArmor((ArmorItem) armor);
+				break;
+
+			case WEAPON:
+				Item weapon = Utilities.UNPACK_ITEM.apply(in.readUTF());
+				if (weapon instanceof WeaponItem)
+					player.setWeapon((WeaponItem) weapon);
+				break;
+
+			case DUNGEON_ENTERED:
+				player.createPlayerDungeon();
+				break;
+
+			case DUNGEON_LEFT:
+				player.removePlayerDungeon();
+				break;
+
+			default:
+				throw new IllegalStateException("Unknown journal event type: " + type);
+		}
+	}
+
+	private static void setQuantity(@Nonnull Inventory inventory, @Nonnull Item item, int quantity) {
+		int current = inventory.getQuantity(item);
+		if (quantity > current) {
+			inventory.addItem(item, quantity - current);
+
+		} else if (quantity < current) {
+			inventory.removeItem(item, current - quantity);
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////
+	// SEGMENTS
+	//////////////////////////////////////////////////////////////////////////////////////
+	@Nonnull
+	private List<Path> getSegments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+			stream.forEach(segments::add);
+		}
+		segments.sort((s1, s2) -> Long.compare(getSegmentNumber(s1), getSegmentNumber(s2)));
+
+		return segments;
+	}
+
+	@Nonnull
+	private Path getSegmentPath(long number) {
+		return this.directory.resolve(number + SEGMENT_SUFFIX);
+	}
+
+	private static long getSegmentNumber(@Nonnull Path segmentPath) {
+		String name = segmentPath.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.github.markozajc.lrpg.provider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.markozajc.lrpg.game.Player;
+
+public interface PlayerStore extends Closeable {
+
+	@Nullable
+	public Player load(long id) throws IOException;
+
+	public void store(long id, @Nonnull Player player) throws IOException;
+
+	public void delete(long id) throws IOException;
+
+	@Nonnull
+	public Map<Long, Player> loadAll() throws IOException;
+
+	/**
+	 * Writes a full snapshot of the given players, superseding all of the records
+	 * stored with {@link #store(long, Player)} so far.
+	 */
+	public void snapshot(@Nonnull Map<Long, Player> players) throws IOException;
+
+	/**
+	 * Whether this store can load single players cheaply enough to load them on first
+	 * access instead of all at once with {@link #loadAll()}.
+	 */
+	public default boolean isLazy() {
+		return false;
+	}
+
+	public default boolean contains(long id) throws IOException {
+		return load(id) != null;
+	}
+
+	/**
+	 * Whether the player can be accessed at all. Unlike {@link #contains(long)}, this
+	 * doesn't touch the disk, and a player that isn't available must not be replaced
+	 * with a new one.
+	 */
+	public default boolean isAvailable(long id) {
+		return true;
+	}
+
+	@Override
+	public default void close() throws IOException {}
+
+}
@@ -0,0 +1,209 @@
+package com.github.markozajc.lrpg.provider;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.markozajc.lrpg.game.Player;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * A {@link PlayerStore} that keeps each player in its own JSON record, so a save
+ * only rewrites the players that have actually changed. The records are folded
+ * into a single snapshot file by {@link #snapshot(Map)}.<br>
+ * The snapshot can optionally be GZIP-compressed. It is compressed and
+ * decompressed as it's streamed through Gson, so the whole file is never held in
+ * memory in either form. A snapshot in the other format is still read, so the
+ * option can be toggled on an existing store.
+ */
+public class RecordPlayerStore implements PlayerStore {
+
+	private static final Type SNAPSHOT_TYPE = new TypeToken<Map<Long, Player>>() {}.getType();
+	private static final String SNAPSHOT_NAME = "snapshot.json";
+	private static final String COMPRESSED_SUFFIX = ".gz";
+	private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+	private static final String RECORDS_NAME = "records";
+	private static final String RECORD_SUFFIX = ".json";
+	private static final String TOMBSTONE_SUFFIX = ".deleted";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	@Nonnull
+	private final Path snapshot;
+	@Nonnull
+	private final Path otherSnapshot;
+	@Nonnull
+	private final Path records;
+	@Nonnull
+	private final Gson gson;
+
+	public RecordPlayerStore(@Nonnull Path directory, @Nonnull Gson gson) throws IOException {
+		this(directory, gson, false);
+	}
+
+	public RecordPlayerStore(@Nonnull Path directory, @Nonnull Gson gson, boolean compressed) throws IOException {
+		Path plain = directory.resolve(SNAPSHOT_NAME);
+		Path gzipped = directory.resolve(SNAPSHOT_NAME + COMPRESSED_SUFFIX);
+		this.snapshot = compressed ? gzipped : plain;
+		this.otherSnapshot = compressed ? plain : gzipped;
+		this.records = directory.resolve(RECORDS_NAME);
+		this.gson = gson;
+
+		Files.createDirectories(this.records);
+	}
+
+	@Override
+	public Player load(long id) throws IOException {
+		if (Files.exists(getTombstone(id)))
+			return null;
+
+		Path record = getRecord(id);
+		if (Files.exists(record))
+			return read(record, Player.class);
+
+		Map<Long, Player> players = readSnapshot();
+		return players == null ? null : players.get(id);
+	}
+
+	@Override
+	public void store(long id, Player player) throws IOException {
+		write(getRecord(id), player, Player.class);
+		Files.deleteIfExists(getTombstone(id));
+	}
+
+	@Override
+	public void delete(long id) throws IOException {
+		Files.write(getTombstone(id), new byte[0]);
+		Files.deleteIfExists(getRecord(id));
+		// The player might still be in the snapshot, so it's shadowed by a tombstone until the next one.
+		// An existing tombstone is truncated instead, so deleting a player twice is fine
+	}
+
+	@Override
+	public Map<Long, Player> loadAll() throws IOException {
+		Map<Long, Player> players = readSnapshot();
+		if (players == null)
+			players = new HashMap<>();
+		// Starts off with the last snapshot
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.records, "*" + RECORD_SUFFIX)) {
+			for (Path record : stream)
+				players.put(getId(record, RECORD_SUFFIX), read(record, Player.class));
+		}
+		// Records are always newer than the snapshot, so they take precedence
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.records, "*" + TOMBSTONE_SUFFIX)) {
+			for (Path tombstone : stream)
+				players.remove(getId(tombstone, TOMBSTONE_SUFFIX));
+		}
+
+		return players;
+	}
+
+	@Override
+	public void snapshot(Map<Long, Player> players) throws IOException {
+		write(this.snapshot, players, SNAPSHOT_TYPE);
+		Files.deleteIfExists(this.otherSnapshot);
+		// A snapshot in the other format is now outdated
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.records, "*" + RECORD_SUFFIX)) {
+			for (Path record : stream)
+				if (players.containsKey(getId(record, RECORD_SUFFIX)))
+					Files.delete(record);
+		}
+		// Records that made it into the snapshot are no longer needed
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.records, "*" + TOMBSTONE_SUFFIX)) {
+			for (Path tombstone : stream)
+				if (!players.containsKey(getId(tombstone, TOMBSTONE_SUFFIX)))
+					Files.delete(tombstone);
+		}
+		// Neither are tombstones of players that are no longer in it
+	}
+
+	@Nonnull
+	private Path getRecord(long id) {
+		return this.records.resolve(id + RECORD_SUFFIX);
+	}
+
+	@Nonnull
+	private Path getTombstone(long id) {
+		return this.records.resolve(id + TOMBSTONE_SUFFIX);
+	}
+
+	private static long getId(@Nonnull Path file, @Nonnull String suffix) {
+		String name = file.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+	}
+
+	@Nullable
+	private Map<Long, Player> readSnapshot() throws IOException {
+		if (Files.exists(this.snapshot))
+			return read(this.snapshot, SNAPSHOT_TYPE);
+
+		if (Files.exists(this.otherSnapshot))
+			return read(this.otherSnapshot, SNAPSHOT_TYPE);
+		// Left over from before the compression was toggled
+
+		return null;
+	}
+
+	@Nullable
+	private <T> T read(@Nonnull Path path, @Nonnull Type type) throws IOException {
+		try (Reader reader = openReader(path)) {
+			return this.gson.fromJson(reader, type);
+		}
+	}
+
+	private void write(@Nonnull Path path, @Nonnull Object value, @Nonnull Type type) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+		try (Writer writer = openWriter(path, temporary)) {
+			this.gson.toJson(value, type, writer);
+		}
+		Files.move(temporary, path, REPLACE_EXISTING, ATOMIC_MOVE);
+		// Replaces the file atomically so a crash mid-write never leaves a torn record behind
+	}
+
+	@Nonnull
+	private static Reader openReader(@Nonnull Path path) throws IOException {
+		if (!isCompressed(path))
+			return Files.newBufferedReader(path, UTF_8);
+
+		return new InputStreamReader(new GZIPInputStream(Files.newInputStream(path), COMPRESSION_BUFFER_SIZE), UTF_8);
+		// GZIPInputStream reads through its own buffer, so the stream doesn't need another one
+	}
+
+	@Nonnull
+	private static Writer openWriter(@Nonnull Path path, @Nonnull Path temporary) throws IOException {
+		if (!isCompressed(path))
+			return Files.newBufferedWriter(temporary, UTF_8);
+
+		return new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(Files.newOutputStream(temporary), COMPRESSION_BUFFER_SIZE), UTF_8),
+				COMPRESSION_BUFFER_SIZE);
+		// Gson writes in small pieces, the buffer keeps the deflater fed with bigger chunks
+	}
+
+	private static boolean isCompressed(@Nonnull Path path) {
+		return path.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+	}
+
+}
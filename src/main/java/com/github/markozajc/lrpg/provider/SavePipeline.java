@@ -0,0 +1,261 @@
+package com.github.markozajc.lrpg.provider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markozajc.lrpg.game.Player;
+
+/**
+ * Writes players to a {@link PlayerStore} on a dedicated thread. Only copies of
+ * players are submitted, taken by the thread that plays them at a checkpoint, so
+ * what gets written is always a consistent state no matter what the game does in
+ * the meantime. Copies of the same player are coalesced, so only the latest one is
+ * written.<br>
+ * Players are written when {@link #flush()} is called or when too many are
+ * pending. Once the capacity is reached, {@link #submit(long, Player)} blocks until
+ * the writer catches up.<br>
+ * If the store fails, the players that weren't written are kept and retried with a
+ * growing delay. While it keeps failing, submitting doesn't block, so a broken disk
+ * doesn't stop the game. Copies keep being coalesced, so at most one copy of each
+ * player is held.
+ */
+public class SavePipeline implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger("LRPG");
+
+	public static final int DEFAULT_CAPACITY = 10_000;
+	private static final long MIN_RETRY_DELAY = TimeUnit.SECONDS.toNanos(1);
+	private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toNanos(1);
+
+	@Nonnull
+	private final PlayerStore store;
+	private final int capacity;
+	@Nonnull
+	private final Thread writer;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = this.lock.newCondition();
+	// Guarded by the lock
+	@Nonnull
+	private Map<Long, Player> pending = new LinkedHashMap<>();
+	@Nonnull
+	private Map<Long, Player> writing = Collections.emptyMap();
+	private long requested;
+	private long completed;
+	private long written;
+	private IOException failure;
+	private long retryDelay = MIN_RETRY_DELAY;
+	private long retryAt;
+	private boolean closed;
+
+	public SavePipeline(@Nonnull PlayerStore store) {
+		this(store, DEFAULT_CAPACITY);
+	}
+
+	public SavePipeline(@Nonnull PlayerStore store, @Nonnegative int capacity) {
+		this.store = store;
+		this.capacity = capacity;
+
+		this.writer = new Thread(this::write, "lrpg-save");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Queues a copy of a player to be written, replacing the previously queued copy of
+	 * the same player. The copy must not be modified afterwards.
+	 */
+	public void submit(long id, @Nonnull Player copy) {
+		this.lock.lock();
+		try {
+			while (!this.closed && this.failure == null && this.pending.size() >= this.capacity
+					&& !this.pending.containsKey(id)) {
+				this.changed.signalAll();
+				this.changed.awaitUninterruptibly();
+			}
+			// Backpressure, unless the writer is failing and waiting to retry
+
+			if (this.closed)
+				throw new IllegalStateException("This save pipeline is closed.");
+
+			this.pending.put(id, copy);
+			if (this.pending.size() >= this.capacity)
+				this.changed.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return whether a copy of the player is waiting to be written or being written
+	 */
+	public boolean isPending(long id) {
+		this.lock.lock();
+		try {
+			return this.pending.containsKey(id) || this.writing.containsKey(id);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all of the players submitted so far and waits for them to be written.
+	 *
+	 * @return the number of players written
+	 * @throws IOException
+	 *             if the store fails to write a player, in which case the players that
+	 *             weren't written are kept queued
+	 * @throws IllegalStateException
+	 *             if this pipeline is closed
+	 */
+	public int flush() throws IOException {
+		this.lock.lock();
+		try {
+			if (this.closed)
+				throw new IllegalStateException("This save pipeline is closed.");
+
+			long writtenBefore = this.written;
+			long generation = ++this.requested;
+			this.changed.signalAll();
+			while (this.completed < generation)
+				this.changed.await();
+
+			if (this.failure != null)
+				throw new IOException("Failed to save players.", this.failure);
+
+			return (int) (this.written - writtenBefore);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for players to be saved.");
+
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the remaining players and stops the writer thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.lock.lock();
+		try {
+			this.closed = true;
+			this.changed.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+
+		try {
+			this.writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for players to be saved.");
+		}
+	}
+
+	private void write() {
+		while (true) {
+			Map<Long, Player> batch;
+			long generation;
+			boolean last;
+
+			this.lock.lock();
+			try {
+				while (!this.closed && this.requested == this.completed) {
+					if (this.failure == null) {
+						if (this.pending.size() >= this.capacity)
+							break;
+						this.changed.awaitUninterruptibly();
+
+					} else {
+						long remaining = this.retryAt - System.nanoTime();
+						if (remaining <= 0)
+							break;
+						try {
+							this.changed.awaitNanos(remaining);
+						} catch (InterruptedException e) {
+							// Nothing interrupts the writer, the deadline is checked again anyway
+						}
+					}
+				}
+				// After a failure, waits until it's time to retry or a flush is requested
+
+				batch = this.pending;
+				this.pending = new LinkedHashMap<>();
+				this.writing = batch;
+				generation = this.requested;
+				last = this.closed;
+			} finally {
+				this.lock.unlock();
+			}
+
+			int batchWritten = 0;
+			IOException batchFailure = null;
+			for (Map.Entry<Long, Player> entry : batch.entrySet()) {
+				try {
+					this.store.store(entry.getKey(), entry.getValue());
+				} catch (IOException e) {
+					batchFailure = e;
+					break;
+
+				} catch (RuntimeException e) {
+					batchFailure = new IOException(e);
+					break;
+				}
+				batchWritten++;
+			}
+
+			this.lock.lock();
+			try {
+				Iterator<Map.Entry<Long, Player>> unwritten = batch.entrySet().iterator();
+				for (int i = 0; i < batchWritten; i++)
+					unwritten.next();
+				while (unwritten.hasNext()) {
+					Map.Entry<Long, Player> entry = unwritten.next();
+					this.pending.putIfAbsent(entry.getKey(), entry.getValue());
+				}
+				// Requeues whatever wasn't written, unless a newer copy has been submitted since
+
+				this.writing = Collections.emptyMap();
+				this.written += batchWritten;
+				this.failure = batchFailure;
+				this.completed = generation;
+				if (batchFailure == null) {
+					this.retryDelay = MIN_RETRY_DELAY;
+				} else {
+					this.retryAt = System.nanoTime() + this.retryDelay;
+					this.retryDelay = Math.min(this.retryDelay * 2, MAX_RETRY_DELAY);
+				}
+				this.changed.signalAll();
+
+				if (last) {
+					if (!this.pending.isEmpty())
+						LOG.error("Failed to save {} player(s) before closing.", this.pending.size(), batchFailure);
+					return;
+				}
+			} finally {
+				this.lock.unlock();
+			}
+
+			if (batchFailure != null)
+				LOG.error("Failed to save players, they will be retried.", batchFailure);
+		}
+	}
+
+}
@@ -0,0 +1,324 @@
+package com.github.markozajc.lrpg.provider;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markozajc.lrpg.game.Player;
+
+/**
+ * A {@link PlayerStore} that spreads players over several independent stores
+ * (shards) by their user's snowflake. Full loads and snapshots are done on all of
+ * the shards in parallel, and a corrupted shard only takes down the players in
+ * it. A shard that fails to open or load is quarantined: its players are left out
+ * of {@link #loadAll()}, aren't {@link #isAvailable(long) available} and the shard
+ * isn't written to until the store is reopened.<br>
+ * Players are assigned to shards by the number of shards, so a directory can't be
+ * reopened with a different one. {@link #open(Path, int, ShardFactory)} enforces
+ * that.
+ */
+public class ShardedPlayerStore implements PlayerStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger("LRPG");
+
+	private static final String SHARDS_NAME = "shards";
+
+	public static interface ShardFactory {
+
+		@Nonnull
+		public PlayerStore create(@Nonnegative int shard) throws IOException;
+
+	}
+
+	@Nonnull
+	private final PlayerStore[] shards;
+	@Nonnull
+	private final Set<Integer> quarantined = ConcurrentHashMap.newKeySet();
+	@Nonnull
+	private final ExecutorService executor;
+
+	/**
+	 * @param shards
+	 *            the shards, where {@code null} stands for a shard that has failed to
+	 *            open and is quarantined from the start
+	 */
+	public ShardedPlayerStore(@Nonnull List<PlayerStore> shards) {
+		if (shards.isEmpty())
+			throw new IllegalArgumentException("At least one shard is required.");
+
+		this.shards = shards.toArray(new PlayerStore[0]);
+		for (int i = 0; i < this.shards.length; i++)
+			if (this.shards[i] == null)
+				this.quarantined.add(i);
+
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(Math.min(this.shards.length,
+			Runtime.getRuntime().availableProcessors()), r -> {
+				Thread thread = new Thread(r, "lrpg-shard-" + threads.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+	}
+
+	/**
+	 * Opens a sharded store in the given directory, creating the shards with the given
+	 * factory.
+	 *
+	 * @throws IOException
+	 *             if the directory was created with a different number of shards
+	 */
+	@Nonnull
+	public static ShardedPlayerStore open(@Nonnull Path directory, @Nonnegative int shards,
+			@Nonnull ShardFactory factory) throws IOException {
+		if (shards < 1)
+			throw new IllegalArgumentException("At least one shard is required.");
+
+		Files.createDirectories(directory);
+		Path marker = directory.resolve(SHARDS_NAME);
+		if (Files.exists(marker)) {
+			int existing = Integer.parseInt(new String(Files.readAllBytes(marker), UTF_8).trim());
+			if (existing != shards)
+				throw new IOException(directory + " is split into " + existing + " shard(s), not " + shards + ".");
+
+		} else {
+			Files.write(marker, Integer.toString(shards).getBytes(UTF_8));
+		}
+
+		List<PlayerStore> stores = new ArrayList<>(shards);
+		IOException failure = null;
+		for (int i = 0; i < shards; i++) {
+			try {
+				stores.add(factory.create(i));
+
+			} catch (IOException e) {
+				LOG.error("Failed to open shard {}, its players are unavailable until it's repaired.", i, e);
+				stores.add(null);
+				if (failure == null)
+					failure = e;
+			}
+		}
+
+		if (failure != null && stores.stream().allMatch(Objects::isNull))
+			throw new IOException("Failed to open all of the shards in " + directory + ".", failure);
+
+		return new ShardedPlayerStore(stores);
+	}
+
+	public int getShardCount() {
+		return this.shards.length;
+	}
+
+	public int getShard(long id) {
+		long mixed = (id ^ id >>> 33) * 0xFF51AFD7ED558CCDL;
+		mixed = (mixed ^ mixed >>> 33) * 0xC4CEB9FE1A85EC53L;
+		return (int) Long.remainderUnsigned(mixed ^ mixed >>> 33, this.shards.length);
+	}
+	// Mixes the snowflake first, its lower bits are mostly made up of sequence numbers. Uses
+	// a different mixer than the shards' own hash tables (see MappedPlayerStore), or every
+	// ID in a shard would land on the same fraction of its slots
+
+	@Nonnull
+	private PlayerStore getStore(long id) throws IOException {
+		int shard = getShard(id);
+		if (this.quarantined.contains(shard))
+			throw new IOException("Shard " + shard + " is quarantined.");
+
+		return this.shards[shard];
+	}
+
+	/**
+	 * @return whether the shard has failed to open or load and is left alone until the
+	 *         store is reopened
+	 */
+	public boolean isQuarantined(int shard) {
+		return this.quarantined.contains(shard);
+	}
+
+	@Override
+	public Player load(long id) throws IOException {
+		return getStore(id).load(id);
+	}
+
+	@Override
+	public void store(long id, Player player) throws IOException {
+		getStore(id).store(id, player);
+	}
+
+	@Override
+	public void delete(long id) throws IOException {
+		getStore(id).delete(id);
+	}
+
+	@Override
+	public boolean contains(long id) throws IOException {
+		return getStore(id).contains(id);
+	}
+
+	@Override
+	public boolean isAvailable(long id) {
+		int shard = getShard(id);
+		return !this.quarantined.contains(shard) && this.shards[shard].isAvailable(id);
+	}
+
+	@Override
+	public boolean isLazy() {
+		for (PlayerStore shard : this.shards)
+			if (shard != null && !shard.isLazy())
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Loads the players of all of the shards that aren't quarantined. A shard that
+	 * fails to load is logged and quarantined, and the players of the other shards
+	 * are still returned.
+	 *
+	 * @throws IOException
+	 *             if none of the shards could be loaded
+	 */
+	@Override
+	public Map<Long, Player> loadAll() throws IOException {
+		List<Future<Map<Long, Player>>> loads = new ArrayList<>(this.shards.length);
+		for (int i = 0; i < this.shards.length; i++) {
+			PlayerStore shard = this.shards[i];
+			loads.add(this.quarantined.contains(i) ? null : this.executor.submit(shard::loadAll));
+		}
+
+		Map<Long, Player> players = new HashMap<>();
+		IOException failure = null;
+		for (int i = 0; i < loads.size(); i++) {
+			try {
+				Map<Long, Player> shardPlayers = await(loads.get(i));
+				if (shardPlayers != null)
+					players.putAll(shardPlayers);
+
+			} catch (IOException e) {
+				LOG.error("Failed to load shard {}, its players are unavailable until it's repaired.", i, e);
+				this.quarantined.add(i);
+				failure = e;
+			}
+		}
+
+		if (failure != null && this.quarantined.size() == this.shards.length)
+			throw new IOException("Failed to load all of the shards.", failure);
+
+		return players;
+	}
+
+	@Override
+	public void snapshot(Map<Long, Player> players) throws IOException {
+		List<Map<Long, Player>> partitions = new ArrayList<>(this.shards.length);
+		for (int i = 0; i < this.shards.length; i++)
+			partitions.add(new HashMap<>());
+		players.forEach((id, player) -> partitions.get(getShard(id)).put(id, player));
+
+		List<Future<Void>> snapshots = new ArrayList<>(this.shards.length);
+		for (int i = 0; i < this.shards.length; i++) {
+			if (this.quarantined.contains(i))
+				continue;
+			// The players of a quarantined shard were never loaded, so its partition is empty
+
+			PlayerStore shard = this.shards[i];
+			Map<Long, Player> partition = partitions.get(i);
+			snapshots.add(this.executor.submit(() -> {
+				shard.snapshot(partition);
+				return null;
+			}));
+		}
+
+		await(snapshots, "snapshot");
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.executor.shutdown();
+
+		IOException failure = null;
+		for (PlayerStore shard : this.shards) {
+			if (shard == null)
+				continue;
+
+			try {
+				shard.close();
+			} catch (IOException e) {
+				if (failure == null)
+					failure = e;
+				else
+					failure.addSuppressed(e);
+			}
+		}
+
+		if (failure != null)
+			throw failure;
+	}
+
+	@Nullable
+	private static <T> T await(@Nullable Future<T> task) throws IOException {
+		if (task == null)
+			return null;
+
+		try {
+			return task.get();
+
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the shards.");
+		}
+	}
+
+	/**
+	 * Waits for all of the shards, even if some of them fail, so every broken one gets
+	 * reported at once.
+	 */
+	@Nonnull
+	private static <T> List<T> await(@Nonnull List<Future<T>> tasks, @Nonnull String action) throws IOException {
+		List<T> results = new ArrayList<>(tasks.size());
+		IOException failure = null;
+		for (int i = 0; i < tasks.size(); i++) {
+			try {
+				results.add(tasks.get(i).get());
+
+			} catch (ExecutionException e) {
+				if (failure == null)
+					failure = new IOException("Failed to " + action + " some of the shards.");
+				failure.addSuppressed(new IOException("Failed to " + action + " shard " + i + ".", e.getCause()));
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the shards.");
+			}
+		}
+
+		if (failure != null)
+			throw failure;
+
+		return results;
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.github.markozajc.lrpg.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.markozajc.lrpg.game.Engine.Action;
+import com.github.markozajc.lrpg.game.Engine.Outcome;
+import com.github.markozajc.lrpg.game.Engine.Session;
+import com.github.markozajc.lrpg.game.Items.ItemStack;
+import com.github.markozajc.lrpg.game.Player.BinaryFormat;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerFight;
+import com.github.markozajc.lrpg.game.Utilities.RandomSource;
+
+public class BinaryFormatTest {
+
+	@Test
+	public void roundTripsPlayer() {
+		Player player = LRpgExposed.getStarterPlayer();
+		player.setGold(12_345);
+		player.setXp(6_789);
+		player.setLastActive(1_234_567_890L);
+
+		Player read = roundTrip(player);
+		assertPlayer(player, read);
+		assertNull(read.getPlayerDungeon());
+	}
+
+	@Test
+	public void roundTripsPlayerInFight() {
+		Player player = LRpgExposed.getStarterPlayer();
+		Utilities.setRandom(RandomSource.seeded(0));
+		try {
+			Session session = new Session(player, "Test");
+			for (int turn = 0; turn < 100 || !session.isFighting(); turn++) {
+				if (!session.isFighting() || session.act(Action.HIT) != Outcome.PLAYER_TURN)
+					session.explore();
+			}
+			// Leaves the player in a fight
+
+		} finally {
+			Utilities.setRandom(null);
+		}
+
+		Player read = roundTrip(player);
+		assertPlayer(player, read);
+
+		PlayerDungeon dungeon = player.getPlayerDungeon();
+		PlayerDungeon readDungeon = read.getPlayerDungeon();
+		assertNotNull(readDungeon);
+		assertEquals(dungeon.getStep(), readDungeon.getStep());
+		assertEquals(dungeon.getHp(), readDungeon.getHp());
+		assertEquals(dungeon.getLevelMark(), readDungeon.getLevelMark());
+		assertSame(dungeon.getLastRegionBoss(), readDungeon.getLastRegionBoss());
+		assertEquals(dungeon.getStatistics().getEnemiesSlain(), readDungeon.getStatistics().getEnemiesSlain());
+
+		PlayerFight fight = dungeon.getPlayerFight();
+		PlayerFight readFight = readDungeon.getPlayerFight();
+		assertNotNull(readFight);
+		assertEquals(fight.getGuard(), readFight.getGuard());
+		assertEquals(fight.getPlayerTime(), readFight.getPlayerTime());
+		assertSame(fight.getEnemy().getInfo(), readFight.getEnemy().getInfo());
+		assertEquals(fight.getEnemy().getHp(), readFight.getEnemy().getHp());
+		assertEquals(fight.getEnemy().getTime(), readFight.getEnemy().getTime());
+		assertEquals(fight.getFeed().getLastLines(BinaryFormat.FEED_LINES),
+			readFight.getFeed().getLastLines(BinaryFormat.FEED_LINES));
+	}
+
+	@Test
+	public void readsVersion1Records() {
+		Player player = LRpgExposed.getStarterPlayer();
+		player.createPlayerDungeon();
+
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		BinaryFormat.write(player, buffer);
+		buffer.flip();
+		// Version 2 only differs from version 1 in fights
+
+		Player read = BinaryFormat.read(buffer, 1);
+		assertPlayer(player, read);
+		assertNotNull(read.getPlayerDungeon());
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void rejectsUnsupportedVersions() {
+		ByteBuffer buffer = ByteBuffer.allocate(0);
+		assertThrows(IllegalArgumentException.class, () -> BinaryFormat.read(buffer, 0));
+		assertThrows(IllegalArgumentException.class, () -> BinaryFormat.read(buffer, BinaryFormat.VERSION + 1));
+	}
+
+	@Nonnull
+	private static Player roundTrip(@Nonnull Player player) {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		BinaryFormat.write(player, buffer);
+		buffer.flip();
+
+		Player read = BinaryFormat.read(buffer);
+		assertFalse(buffer.hasRemaining());
+		return read;
+	}
+
+	private static void assertPlayer(@Nonnull Player expected, @Nonnull Player actual) {
+		assertEquals(expected.getGold(), actual.getGold());
+		assertEquals(expected.getXp(), actual.getXp());
+		assertSame(expected.getArmor(), actual.getArmor());
+		assertSame(expected.getWeapon(), actual.getWeapon());
+		assertEquals(expected.getLastActive(), actual.getLastActive());
+
+		assertEquals(expected.getInventory().getItems().size(), actual.getInventory().getItems().size());
+		for (ItemStack stack : expected.getInventory().getItems())
+			assertEquals(stack.getQuantity(), actual.getInventory().getQuantity(stack.getItem()));
+	}
+
+}
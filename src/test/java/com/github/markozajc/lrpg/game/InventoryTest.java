@@ -0,0 +1,163 @@
+package com.github.markozajc.lrpg.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
+import com.github.markozajc.lrpg.game.Items.BattleItemDatabase;
+import com.github.markozajc.lrpg.game.Items.HealingItemDatabase;
+import com.github.markozajc.lrpg.game.Items.Inventory;
+import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.ItemDatabase;
+import com.github.markozajc.lrpg.game.Items.ItemStack;
+import com.github.markozajc.lrpg.game.Items.UsableItemDatabase;
+import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
+
+/**
+ * Checks that the display order of the inventory stays in sync with the positions
+ * its items are looked up by, both for database items and for gear.
+ */
+public class InventoryTest {
+
+	private static final Item ANKH = ItemDatabase.ANKH;
+	private static final Item POTION = HealingItemDatabase.POTION_HEALING;
+	private static final Item RATION = HealingItemDatabase.FOOD_RATION;
+	private static final Item SCROLL = UsableItemDatabase.SCROLL_UPGRADE;
+	private static final Item WIPEOUT = BattleItemDatabase.SCROLL_WIPEOUT;
+	private static final Item DAGGER = Utilities.getWeaponItem(WeaponDatabase.DAGGER, 1);
+	private static final Item UPGRADED_DAGGER = Utilities.getWeaponItem(WeaponDatabase.DAGGER, 2);
+	private static final Item LEATHER = Utilities.getArmorItem(ArmorDatabase.LEATHER, 0);
+
+	@Test
+	public void stacksItemsOfTheSameType() {
+		Inventory inventory = new Inventory();
+		inventory.addItem(POTION, 2);
+		inventory.addItem(DAGGER, 1);
+		inventory.addItem(POTION, 3);
+		inventory.addItem(UPGRADED_DAGGER, 1);
+		inventory.addItem(Utilities.getWeaponItem(WeaponDatabase.DAGGER, 1), 1);
+		// Gear is interned, so the same type and level is the same item
+
+		assertContents(inventory, stack(POTION, 5), stack(DAGGER, 2), stack(UPGRADED_DAGGER, 1));
+	}
+
+	@Test
+	public void keepsPositionsAfterRemovingItems() {
+		Inventory inventory = new Inventory();
+		inventory.addItem(ANKH, 1);
+		inventory.addItem(DAGGER, 1);
+		inventory.addItem(POTION, 2);
+		inventory.addItem(LEATHER, 1);
+		inventory.addItem(SCROLL, 3);
+		inventory.addItem(WIPEOUT, 1);
+		inventory.addItem(RATION, 4);
+		// Grows the arrays past their initial capacity
+
+		assertTrue(inventory.removeItem(POTION, 2));
+		assertContents(inventory, stack(ANKH, 1), stack(DAGGER, 1), stack(LEATHER, 1), stack(SCROLL, 3),
+			stack(WIPEOUT, 1), stack(RATION, 4));
+		assertAbsent(inventory, POTION);
+
+		assertTrue(inventory.removeItem(DAGGER, 1));
+		assertTrue(inventory.removeItem(ANKH, 1));
+		assertContents(inventory, stack(LEATHER, 1), stack(SCROLL, 3), stack(WIPEOUT, 1), stack(RATION, 4));
+		assertAbsent(inventory, DAGGER);
+		assertAbsent(inventory, ANKH);
+
+		inventory.addItem(DAGGER, 1);
+		inventory.addItem(POTION, 1);
+		assertTrue(inventory.removeItem(RATION, 4));
+		assertContents(inventory, stack(LEATHER, 1), stack(SCROLL, 3), stack(WIPEOUT, 1), stack(DAGGER, 1),
+			stack(POTION, 1));
+	}
+
+	@Test
+	public void removesOnlyWhatIsHeld() {
+		Inventory inventory = new Inventory();
+		inventory.addItem(ANKH, 2);
+		inventory.addItem(LEATHER, 1);
+
+		assertFalse(inventory.removeItem(ANKH, 3));
+		assertFalse(inventory.removeItem(POTION, 1));
+		assertFalse(inventory.removeItem(DAGGER, 1));
+		assertContents(inventory, stack(ANKH, 2), stack(LEATHER, 1));
+
+		assertTrue(inventory.removeItem(ANKH, 1));
+		assertContents(inventory, stack(ANKH, 1), stack(LEATHER, 1));
+	}
+
+	@Test
+	public void removesWholeStacks() {
+		Inventory inventory = new Inventory();
+		inventory.addItem(SCROLL, 3);
+		inventory.addItem(LEATHER, 1);
+		inventory.addItem(POTION, 2);
+
+		assertTrue(inventory.removeItemStack(inventory.getItems().get(0)));
+		assertContents(inventory, stack(LEATHER, 1), stack(POTION, 2));
+
+		assertTrue(inventory.removeItemStack(stack(POTION, 1)));
+		// Not the whole stack, so only its quantity is removed
+		assertContents(inventory, stack(LEATHER, 1), stack(POTION, 1));
+
+		assertTrue(inventory.removeItemStack(inventory.getItemStack(LEATHER)));
+		assertContents(inventory, stack(POTION, 1));
+		assertAbsent(inventory, SCROLL);
+		assertAbsent(inventory, LEATHER);
+	}
+
+	@Test
+	public void copiesIndependently() {
+		Inventory inventory = new Inventory();
+		inventory.addItem(POTION, 2);
+		inventory.addItem(DAGGER, 1);
+		inventory.addItem(SCROLL, 1);
+
+		Inventory copy = inventory.copy();
+		inventory.removeItem(POTION, 2);
+		inventory.addItem(DAGGER, 1);
+		inventory.addItem(LEATHER, 1);
+		copy.addItem(ANKH, 1);
+
+		assertContents(inventory, stack(DAGGER, 2), stack(SCROLL, 1), stack(LEATHER, 1));
+		assertContents(copy, stack(POTION, 2), stack(DAGGER, 1), stack(SCROLL, 1), stack(ANKH, 1));
+		assertAbsent(copy, LEATHER);
+	}
+
+	/**
+	 * Checks the stacks in display order, and that each of them is found by its item.
+	 */
+	private static void assertContents(@Nonnull Inventory inventory, @Nonnull ItemStack... expected) {
+		List<ItemStack> items = inventory.getItems();
+		assertEquals(expected.length, items.size());
+
+		for (int i = 0; i < expected.length; i++) {
+			Item item = expected[i].getItem();
+			assertSame(item, items.get(i).getItem());
+			assertEquals(expected[i].getQuantity(), items.get(i).getQuantity());
+
+			assertEquals(expected[i].getQuantity(), inventory.getQuantity(item));
+			assertSame(item, inventory.getItemStack(item).getItem());
+		}
+	}
+
+	private static void assertAbsent(@Nonnull Inventory inventory, @Nonnull Item item) {
+		assertEquals(0, inventory.getQuantity(item));
+		assertNull(inventory.getItemStack(item));
+	}
+
+	@Nonnull
+	private static ItemStack stack(@Nonnull Item item, int quantity) {
+		return new ItemStack(item, quantity);
+	}
+
+}
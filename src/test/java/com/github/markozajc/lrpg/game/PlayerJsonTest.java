@@ -0,0 +1,215 @@
+package com.github.markozajc.lrpg.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.markozajc.lrpg.game.Combat.CombatFeed;
+import com.github.markozajc.lrpg.game.Enemies.EnemyInformation;
+import com.github.markozajc.lrpg.game.Enemies.RegionDatabase;
+import com.github.markozajc.lrpg.game.Engine.Action;
+import com.github.markozajc.lrpg.game.Engine.Outcome;
+import com.github.markozajc.lrpg.game.Engine.Session;
+import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
+import com.github.markozajc.lrpg.game.Items.ArmorItem;
+import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.ItemStack;
+import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
+import com.github.markozajc.lrpg.game.Items.WeaponItem;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon;
+import com.github.markozajc.lrpg.game.Player.PlayerDungeon.PlayerFight;
+import com.github.markozajc.lrpg.game.Utilities.RandomSource;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+
+/**
+ * Checks that the hand-written type adapters read and write the same JSON that
+ * Gson's reflective adapter produced from the classes as they were before the
+ * adapters were added. The old classes are mirrored by the {@code Legacy*} classes
+ * below, as the inventory and the combat feed no longer have the same fields.
+ */
+public class PlayerJsonTest {
+
+	private static final Gson ADAPTERS = LRpgExposed.registerGsonTypeAdapters(new GsonBuilder()).create();
+	private static final Gson REFLECTIVE = new GsonBuilder()
+			.registerTypeHierarchyAdapter(Item.class, Utilities.getTypeAdapterFactory(Utilities.UNPACK_ITEM))
+			.registerTypeHierarchyAdapter(EnemyInformation.class, Utilities.getTypeAdapterFactory(Utilities.UNPACK_ENEMY))
+			.create();
+	// The type adapters registered before the hand-written ones were added
+
+	@Test
+	public void reflectiveReadsAdapterOutput() {
+		Player player = getPlayer();
+		String json = ADAPTERS.toJson(player);
+
+		LegacyPlayer legacy = REFLECTIVE.fromJson(json, LegacyPlayer.class);
+		assertEquals(player.getGold(), legacy.gold);
+		assertEquals(player.getXp(), legacy.xp);
+		assertSame(player.getArmor(), legacy.armor);
+		assertSame(player.getWeapon(), legacy.weapon);
+		assertEquals(player.getLastActive(), legacy.lastActive);
+
+		List<ItemStack> stacks = player.getInventory().getItems();
+		assertEquals(stacks.size(), legacy.inventory.items.size());
+		for (int i = 0; i < stacks.size(); i++) {
+			assertSame(stacks.get(i).getItem(), legacy.inventory.items.get(i).item);
+			assertEquals(stacks.get(i).getQuantity(), legacy.inventory.items.get(i).quantity);
+		}
+
+		PlayerDungeon dungeon = player.getPlayerDungeon();
+		assertEquals(dungeon.getStep(), legacy.playerDungeon.step);
+		assertEquals(dungeon.getLastEncounter(), legacy.playerDungeon.lastEncounter);
+		assertEquals(dungeon.getLevelMark(), legacy.playerDungeon.levelMark);
+		assertSame(dungeon.getLastRegionBoss(), legacy.playerDungeon.lastRegionBossDefeated);
+		assertEquals(dungeon.getHp(), legacy.playerDungeon.hp);
+		assertEquals(dungeon.getStatistics().getEnemiesSlain(), legacy.playerDungeon.statistics.enemiesSlain);
+
+		PlayerFight fight = dungeon.getPlayerFight();
+		assertEquals(fight.getGuard(), legacy.playerDungeon.playerFight.guard);
+		assertEquals(fight.getPlayerTime(), legacy.playerDungeon.playerFight.playerTime);
+		assertEquals(fight.getFeed().getLastLines(CombatFeed.CAPACITY), legacy.playerDungeon.playerFight.feed.toString());
+		assertSame(fight.getEnemy().getInfo(), legacy.playerDungeon.playerFight.enemy.info);
+		assertEquals(fight.getEnemy().getHp(), legacy.playerDungeon.playerFight.enemy.hp);
+		assertEquals(fight.getEnemy().getTime(), legacy.playerDungeon.playerFight.enemy.time);
+
+		assertEquals(REFLECTIVE.fromJson(json, JsonElement.class),
+			REFLECTIVE.fromJson(REFLECTIVE.toJson(legacy), JsonElement.class));
+		// Same fields, nesting and values
+	}
+
+	@Test
+	public void adaptersReadReflectiveOutput() {
+		Player player = getPlayer();
+		String json = REFLECTIVE.toJson(REFLECTIVE.fromJson(ADAPTERS.toJson(player), LegacyPlayer.class));
+
+		Player read = ADAPTERS.fromJson(json, Player.class);
+		assertEquals(player.getGold(), read.getGold());
+		assertEquals(player.getXp(), read.getXp());
+		assertSame(player.getArmor(), read.getArmor());
+		assertSame(player.getWeapon(), read.getWeapon());
+		assertEquals(player.getLastActive(), read.getLastActive());
+
+		assertEquals(player.getInventory().getItems().size(), read.getInventory().getItems().size());
+		for (ItemStack stack : player.getInventory().getItems())
+			assertEquals(stack.getQuantity(), read.getInventory().getQuantity(stack.getItem()));
+
+		PlayerDungeon dungeon = player.getPlayerDungeon();
+		PlayerDungeon readDungeon = read.getPlayerDungeon();
+		assertNotNull(readDungeon);
+		assertEquals(dungeon.getStep(), readDungeon.getStep());
+		assertEquals(dungeon.getLastEncounter(), readDungeon.getLastEncounter());
+		assertEquals(dungeon.getLevelMark(), readDungeon.getLevelMark());
+		assertSame(dungeon.getLastRegionBoss(), readDungeon.getLastRegionBoss());
+		assertEquals(dungeon.getHp(), readDungeon.getHp());
+		assertEquals(dungeon.getStatistics().getEnemiesSlain(), readDungeon.getStatistics().getEnemiesSlain());
+
+		PlayerFight fight = dungeon.getPlayerFight();
+		PlayerFight readFight = readDungeon.getPlayerFight();
+		assertNotNull(readFight);
+		assertEquals(fight.getGuard(), readFight.getGuard());
+		assertEquals(fight.getPlayerTime(), readFight.getPlayerTime());
+		assertEquals(fight.getFeed().getLastLines(CombatFeed.CAPACITY), readFight.getFeed().getLastLines(CombatFeed.CAPACITY));
+		assertSame(fight.getEnemy().getInfo(), readFight.getEnemy().getInfo());
+		assertEquals(fight.getEnemy().getHp(), readFight.getEnemy().getHp());
+		assertEquals(fight.getEnemy().getTime(), readFight.getEnemy().getTime());
+	}
+
+	/**
+	 * @return a player with upgraded gear, a full inventory and a fight in progress
+	 */
+	private static Player getPlayer() {
+		Player player = LRpgExposed.getStarterPlayer();
+		player.setGold(12_345);
+		player.setXp(6_789);
+		player.setArmor(Utilities.getArmorItem(ArmorDatabase.SHIRT, 2));
+		player.setWeapon(Utilities.getWeaponItem(WeaponDatabase.SHORTSWORD, 1));
+		player.getInventory().addItem(Utilities.getWeaponItem(WeaponDatabase.DAGGER, 3), 2);
+		player.setLastActive(1_234_567_890L);
+
+		Utilities.setRandom(RandomSource.seeded(0));
+		try {
+			Session session = new Session(player, "Test");
+			for (int turn = 0; turn < 100 || !session.isFighting(); turn++) {
+				if (!session.isFighting() || session.act(Action.HIT) != Outcome.PLAYER_TURN)
+					session.explore();
+			}
+			// Leaves the player in a fight
+
+		} finally {
+			Utilities.setRandom(null);
+		}
+
+		return player;
+	}
+
+	private static class LegacyPlayer {
+
+		long gold;
+		long xp;
+		ArmorItem armor;
+		WeaponItem weapon;
+		LegacyInventory inventory;
+		LegacyDungeon playerDungeon;
+		long lastActive;
+
+	}
+
+	private static class LegacyInventory {
+
+		List<LegacyItemStack> items;
+
+	}
+
+	private static class LegacyItemStack {
+
+		Item item;
+		int quantity;
+
+	}
+
+	private static class LegacyDungeon {
+
+		int lastEncounter;
+		int step;
+		int levelMark;
+		RegionDatabase lastRegionBossDefeated;
+		int hp;
+		LegacyFight playerFight;
+		LegacyStatistics statistics;
+		long reputationMark;
+
+	}
+
+	private static class LegacyFight {
+
+		int guard;
+		LegacyEnemy enemy;
+		StringBuilder feed;
+		float playerTime;
+
+	}
+
+	private static class LegacyEnemy {
+
+		EnemyInformation info;
+		int hp;
+		float time;
+
+	}
+
+	private static class LegacyStatistics {
+
+		int enemiesSlain;
+		int healiesConsumed;
+		int chestsOpened;
+		int mysteriousBooksRead;
+		int itemsPurchased;
+
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.github.markozajc.lrpg.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.markozajc.lrpg.game.Items.Item;
+import com.github.markozajc.lrpg.game.Items.ItemRarityPack;
+import com.github.markozajc.lrpg.game.LRpgExposed.ObjectWithRarity;
+import com.github.markozajc.lrpg.game.Utilities.RandomSource;
+import com.github.markozajc.lrpg.game.Utilities.RaritySampler;
+
+/**
+ * Checks that {@link RaritySampler} and the weighted
+ * {@link ItemRarityPack#maybeGetItem(long)} give every outcome the same probability
+ * as the cumulative roll of {@link Utilities#getRandomValue(List, float)}. The
+ * probabilities of the sampler are measured exactly by walking every column of its
+ * alias table with evenly spaced random floats.
+ */
+public class RaritySamplerTest {
+
+	private static final Object NOTHING = new Object();
+	private static final int STEPS = 20_000;
+	private static final double EXACT = 1e-4;
+	private static final int ROLLS = 200_000;
+	private static final double STATISTICAL = .01;
+
+	@Test
+	public void matchesCumulativeRoll() {
+		List<Rarity> objects = Arrays.asList(new Rarity(.1f), new Rarity(.5f), new Rarity(.3f), new Rarity(.3f),
+			new Rarity(.001f), new Rarity(0f));
+		// Equal rarities are rolled in their original order
+
+		assertProbabilities(getExpected(objects, 1f), enumerate(new RaritySampler<>(objects, 1f)::sample));
+		assertProbabilities(getExpected(objects, 2f), enumerate(new RaritySampler<>(objects, 2f)::sample));
+		// Chances over 1 are always rolled
+	}
+
+	@Test
+	public void matchesCumulativeRollWhenSeeded() {
+		List<Rarity> objects = Arrays.asList(new Rarity(.4f), new Rarity(.25f), new Rarity(.25f), new Rarity(.05f));
+		RaritySampler<Rarity> sampler = new RaritySampler<>(objects, 1f);
+
+		Map<Object, Integer> sampled = new IdentityHashMap<>();
+		Map<Object, Integer> rolled = new IdentityHashMap<>();
+		Utilities.setRandom(RandomSource.seeded(42));
+		try {
+			for (int i = 0; i < ROLLS; i++) {
+				sampled.merge(key(sampler.sample()), 1, Integer::sum);
+				rolled.merge(key(Utilities.getRandomValue(new ArrayList<>(objects))), 1, Integer::sum);
+			}
+		} finally {
+			Utilities.setRandom(null);
+		}
+
+		for (Map.Entry<Object, Double> expected : getExpected(objects, 1f).entrySet()) {
+			double sampledShare = sampled.getOrDefault(expected.getKey(), 0) / (double) ROLLS;
+			double rolledShare = rolled.getOrDefault(expected.getKey(), 0) / (double) ROLLS;
+			assertEquals(expected.getValue(), sampledShare, STATISTICAL);
+			assertEquals(rolledShare, sampledShare, STATISTICAL);
+		}
+	}
+
+	@Test
+	public void weightedPackMatchesCumulativeRoll() {
+		ItemRarityPack pack = Assets.ALL_NO_RARITY_PACK;
+		TreeSet<Long> reputations = Arrays.stream(pack.getItems())
+				.map(Item::getReputation)
+				.collect(Collectors.toCollection(TreeSet::new));
+
+		for (long threshold : reputations) {
+			for (long reputation : new long[] {
+					threshold, threshold + 1
+			}) {
+				List<Item> applicable = Arrays.stream(pack.getItems())
+						.filter(i -> i.getReputation() < reputation)
+						.collect(Collectors.toList());
+				// The items the pack used to filter out with getObjectsWithReputation()
+
+				if (applicable.isEmpty()) {
+					assertNull(pack.maybeGetItem(reputation));
+					continue;
+				}
+
+				Map<Object, Double> actual = enumerate(() -> pack.maybeGetItem(reputation));
+				for (Object item : actual.keySet())
+					assertTrue(item == NOTHING || ((Item) item).getReputation() < reputation);
+				// An item is only available above its reputation (countBelow)
+
+				assertProbabilities(getExpected(applicable, 1f), actual);
+			}
+		}
+	}
+
+	/**
+	 * @return the probability of every object (and {@link #NOTHING}) under the
+	 *         cumulative roll, where an object is reached if all of the more common
+	 *         ones fail
+	 */
+	@Nonnull
+	private static Map<Object, Double> getExpected(@Nonnull List<? extends ObjectWithRarity> objects, float multiplier) {
+		List<ObjectWithRarity> sorted = new ArrayList<>(objects);
+		sorted.sort(Assets.OBJECTWITHRARITY_COMPARATOR);
+
+		Map<Object, Double> expected = new IdentityHashMap<>();
+		double remaining = 1;
+		for (ObjectWithRarity object : sorted) {
+			double chance = Math.min(1, object.getRarity() * multiplier);
+			expected.merge(object, remaining * chance, Double::sum);
+			remaining -= remaining * chance;
+		}
+		expected.put(NOTHING, remaining);
+
+		return expected;
+	}
+
+	/**
+	 * Rolls every column of the alias table with {@value #STEPS} evenly spaced floats.
+	 */
+	@Nonnull
+	private static Map<Object, Double> enumerate(@Nonnull Supplier<?> roll) {
+		ScriptedRandom random = new ScriptedRandom();
+		Map<Object, Double> probabilities = new IdentityHashMap<>();
+		Utilities.setRandom(random);
+		try {
+			roll.get();
+			int columns = random.bound;
+
+			for (int column = 0; column < columns; column++) {
+				random.column = column;
+				for (int step = 0; step < STEPS; step++) {
+					random.value = (step + .5f) / STEPS;
+					probabilities.merge(key(roll.get()), 1d / columns / STEPS, Double::sum);
+				}
+			}
+		} finally {
+			Utilities.setRandom(null);
+		}
+
+		return probabilities;
+	}
+
+	private static void assertProbabilities(@Nonnull Map<Object, Double> expected, @Nonnull Map<Object, Double> actual) {
+		for (Map.Entry<Object, Double> entry : expected.entrySet())
+			assertEquals(entry.getValue(), actual.getOrDefault(entry.getKey(), 0d), EXACT);
+
+		for (Object outcome : actual.keySet())
+			assertTrue(expected.containsKey(outcome));
+	}
+
+	@Nonnull
+	private static Object key(Object outcome) {
+		return outcome == null ? NOTHING : outcome;
+	}
+
+	private static final class Rarity implements ObjectWithRarity {
+
+		private final float rarity;
+
+		Rarity(float rarity) {
+			this.rarity = rarity;
+		}
+
+		@Override
+		public float getRarity() {
+			return this.rarity;
+		}
+
+	}
+
+	private static final class ScriptedRandom implements RandomSource {
+
+		int bound;
+		int column;
+		float value;
+
+		@Override
+		public int nextInt(int bound) {
+			this.bound = bound;
+			return this.column;
+		}
+
+		@Override
+		public float nextFloat() {
+			return this.value;
+		}
+
+		@Override
+		public boolean nextBoolean() {
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.github.markozajc.lrpg.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Player;
+
+public class MappedPlayerStoreTest {
+
+	private static final int SLOT_SIZE = 1024;
+	private static final int CAPACITY = 8;
+	private static final int PLAYERS = 100;
+
+	// File layout, see MappedPlayerStore
+	private static final int HEADER_SIZE = 32;
+	private static final int CAPACITY_OFFSET = 12;
+	private static final int COPIES_OFFSET = 8;
+	private static final int COPY_HEADER_SIZE = 12;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void storesAndLoadsAcrossReopen() throws IOException {
+		Path path = this.directory.resolve("players.bin");
+		try (MappedPlayerStore store = new MappedPlayerStore(path, SLOT_SIZE, CAPACITY)) {
+			for (long id = 1; id <= PLAYERS; id++)
+				store.store(id, getPlayer(id));
+			// Grows the store a few times
+		}
+
+		try (MappedPlayerStore store = new MappedPlayerStore(path)) {
+			for (long id = 1; id <= PLAYERS; id++) {
+				assertTrue(store.contains(id));
+				assertEquals(id, store.load(id).getGold());
+			}
+			assertFalse(store.contains(PLAYERS + 1));
+			assertNull(store.load(PLAYERS + 1));
+			assertEquals(PLAYERS, store.loadAll().size());
+		}
+	}
+
+	@Test
+	public void keepsOtherPlayersReachableAfterDelete() throws IOException {
+		try (MappedPlayerStore store = new MappedPlayerStore(this.directory.resolve("players.bin"), SLOT_SIZE,
+			CAPACITY)) {
+			for (long id = 1; id <= PLAYERS; id++)
+				store.store(id, getPlayer(id));
+			for (long id = 2; id <= PLAYERS; id += 2)
+				store.delete(id);
+
+			for (long id = 1; id <= PLAYERS; id++) {
+				if (id % 2 == 0) {
+					assertNull(store.load(id));
+				} else {
+					assertEquals(id, store.load(id).getGold());
+				}
+			}
+			assertEquals(PLAYERS / 2, store.loadAll().size());
+		}
+	}
+
+	@Test
+	public void fallsBackToOlderCopyAfterTornWrite() throws IOException {
+		Path path = this.directory.resolve("players.bin");
+		try (MappedPlayerStore store = new MappedPlayerStore(path, SLOT_SIZE, CAPACITY)) {
+			store.store(1, getPlayer(10));
+			store.store(1, getPlayer(20));
+		}
+
+		corruptCopies(path, 1, false);
+		// A crash in the middle of writing the newer copy
+
+		try (MappedPlayerStore store = new MappedPlayerStore(path)) {
+			assertEquals(10, store.load(1).getGold());
+
+			store.store(1, getPlayer(30));
+			assertEquals(30, store.load(1).getGold());
+		}
+	}
+
+	@Test
+	public void failsWhenBothCopiesAreCorrupted() throws IOException {
+		Path path = this.directory.resolve("players.bin");
+		try (MappedPlayerStore store = new MappedPlayerStore(path, SLOT_SIZE, CAPACITY)) {
+			store.store(1, getPlayer(10));
+			store.store(1, getPlayer(20));
+			store.store(2, getPlayer(30));
+		}
+
+		corruptCopies(path, 1, true);
+
+		try (MappedPlayerStore store = new MappedPlayerStore(path)) {
+			assertThrows(IOException.class, () -> store.load(1));
+			assertEquals(30, store.load(2).getGold());
+		}
+	}
+
+	/**
+	 * Flips a bit in the record of the newer copy of the player, or of both copies.
+	 */
+	private static void corruptCopies(@Nonnull Path path, long id, boolean both) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+			int capacity = buffer.getInt(CAPACITY_OFFSET);
+			int copySize = (SLOT_SIZE - COPIES_OFFSET) / 2;
+
+			for (int slot = 0; slot < capacity; slot++) {
+				int offset = HEADER_SIZE + slot * SLOT_SIZE;
+				if (buffer.getLong(offset) != id)
+					continue;
+
+				int first = offset + COPIES_OFFSET;
+				int second = first + copySize;
+				if (both || buffer.getInt(first) > buffer.getInt(second))
+					flip(buffer, first);
+				if (both || buffer.getInt(second) > buffer.getInt(first))
+					flip(buffer, second);
+
+				buffer.force();
+				return;
+			}
+		}
+
+		throw new IllegalArgumentException("Player " + id + " is not in " + path + ".");
+	}
+
+	private static void flip(@Nonnull ByteBuffer buffer, int copy) {
+		int position = copy + COPY_HEADER_SIZE;
+		buffer.put(position, (byte) (buffer.get(position) ^ 1));
+	}
+
+	@Nonnull
+	private static Player getPlayer(long gold) {
+		Player player = LRpgExposed.getStarterPlayer();
+		player.setGold(gold);
+		return player;
+	}
+
+}
@@ -0,0 +1,209 @@
+package com.github.markozajc.lrpg.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.markozajc.lrpg.game.Items.ArmorDatabase;
+import com.github.markozajc.lrpg.game.Items.HealingItemDatabase;
+import com.github.markozajc.lrpg.game.Items.WeaponDatabase;
+import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Player;
+import com.github.markozajc.lrpg.game.Utilities;
+import com.github.markozajc.lrpg.provider.PlayerJournal.Compactor;
+import com.github.markozajc.lrpg.provider.PlayerJournal.ReplayTarget;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+public class PlayerJournalTest {
+
+	private static final long ID = 123_456_789_012_345_678L;
+	private static final Gson GSON = LRpgExposed.registerGsonTypeAdapters(new GsonBuilder()).create();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void replaysEventsOverRecord() throws IOException {
+		try (PlayerJournal journal = open(new HashMap<>(), new HashSet<>())) {
+			Player player = LRpgExposed.getStarterPlayer();
+			journal.record(ID, player.copy());
+			player.setMutationListener(journal.listener(ID));
+
+			player.setGold(100);
+			player.setXp(500);
+			player.setArmor(Utilities.getArmorItem(ArmorDatabase.SHIRT, 0));
+			player.setWeapon(Utilities.getWeaponItem(WeaponDatabase.SHORTSWORD, 0));
+			player.getInventory().addItem(HealingItemDatabase.FOOD_RATION, 2);
+			player.createPlayerDungeon();
+			player.getPlayerDungeon().setStep(3);
+		}
+
+		Map<Long, Player> players = new HashMap<>();
+		Set<Long> compacted = new HashSet<>();
+		open(players, compacted).close();
+
+		Player replayed = players.get(ID);
+		assertNotNull(replayed);
+		assertEquals(100, replayed.getGold());
+		assertEquals(500, replayed.getXp());
+		assertSame(Utilities.getArmorItem(ArmorDatabase.SHIRT, 0), replayed.getArmor());
+		assertSame(Utilities.getWeaponItem(WeaponDatabase.SHORTSWORD, 0), replayed.getWeapon());
+		assertEquals(5, replayed.getInventory().getQuantity(HealingItemDatabase.FOOD_RATION));
+		assertNotNull(replayed.getPlayerDungeon());
+		assertEquals(3, replayed.getPlayerDungeon().getStep());
+		assertTrue(compacted.contains(ID));
+	}
+
+	@Test
+	public void replaysEventsOverStoredPlayer() throws IOException {
+		Player stored = LRpgExposed.getStarterPlayer();
+		stored.createPlayerDungeon();
+
+		try (PlayerJournal journal = open(new HashMap<>(), new HashSet<>())) {
+			Player player = stored.copy();
+			player.setMutationListener(journal.listener(ID));
+			player.setGold(42);
+			player.removePlayerDungeon();
+		}
+
+		Map<Long, Player> players = new HashMap<>();
+		PlayerJournal journal = new PlayerJournal(this.directory, GSON);
+		journal.open(target(players, id -> stored.copy()), compactor(new HashSet<>()));
+		journal.close();
+
+		assertEquals(42, players.get(ID).getGold());
+		assertNull(players.get(ID).getPlayerDungeon());
+	}
+
+	@Test
+	public void ignoresTornEntry() throws IOException {
+		writeGold(100, 200);
+
+		Path segment = getSegments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		// A crash in the middle of the last write
+
+		assertEquals(100, replayGold());
+	}
+
+	@Test
+	public void ignoresCorruptedEntry() throws IOException {
+		writeGold(100, 200);
+
+		Path segment = getSegments().get(0);
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(segment, bytes);
+		// Flips a bit in the checksum of the last entry
+
+		assertEquals(100, replayGold());
+	}
+
+	@Test
+	public void deletesReplayedSegments() throws IOException {
+		writeGold(100);
+		assertEquals(100, replayGold());
+
+		assertEquals(1, getSegments().size());
+		assertEquals(0, Files.size(getSegments().get(0)));
+		// Only the fresh segment of the second journal is left
+	}
+
+	private void writeGold(long... golds) throws IOException {
+		try (PlayerJournal journal = open(new HashMap<>(), new HashSet<>())) {
+			Player player = LRpgExposed.getStarterPlayer();
+			journal.record(ID, player.copy());
+			player.setMutationListener(journal.listener(ID));
+			for (long gold : golds)
+				player.setGold(gold);
+		}
+	}
+
+	private long replayGold() throws IOException {
+		Map<Long, Player> players = new HashMap<>();
+		open(players, new HashSet<>()).close();
+		return players.get(ID).getGold();
+	}
+
+	@Nonnull
+	private PlayerJournal open(@Nonnull Map<Long, Player> players, @Nonnull Set<Long> compacted) throws IOException {
+		PlayerJournal journal = new PlayerJournal(this.directory, GSON);
+		journal.open(target(players, id -> null), compactor(compacted));
+		return journal;
+	}
+
+	/**
+	 * Loads the players that aren't in the map with the loader, as LRpgProvider does
+	 * with its store.
+	 */
+	@Nonnull
+	private static ReplayTarget target(@Nonnull Map<Long, Player> players, @Nonnull LongFunction<Player> loader) {
+		return new ReplayTarget() {
+
+			@Override
+			public Player get(long id) {
+				Player player = players.get(id);
+				if (player == null) {
+					player = loader.apply(id);
+					if (player != null)
+						players.put(id, player);
+				}
+
+				return player;
+			}
+
+			@Override
+			public void put(long id, Player player) {
+				players.put(id, player);
+			}
+
+		};
+	}
+
+	@Nonnull
+	private static Compactor compactor(@Nonnull Set<Long> compacted) {
+		return new Compactor() {
+
+			@Override
+			public void compact(Set<Long> ids) {
+				compacted.addAll(ids);
+			}
+
+			@Override
+			public void flush() {}
+
+		};
+	}
+
+	@Nonnull
+	private List<Path> getSegments() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			return files.filter(f -> f.toString().endsWith(".wal")).collect(Collectors.toList());
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.github.markozajc.lrpg.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Player;
+
+public class SavePipelineTest {
+
+	private static final int CAPACITY = 100;
+	private static final long TIMEOUT = 5_000;
+	private static final long BLOCK_TIME = 200;
+	// In milliseconds, the latter only has to be long enough for a blocked submit to show
+
+	@Test
+	public void coalescesCopiesOfTheSamePlayer() throws IOException {
+		RecordingStore store = new RecordingStore();
+		try (SavePipeline pipeline = new SavePipeline(store, CAPACITY)) {
+			pipeline.submit(1, getPlayer(10));
+			pipeline.submit(2, getPlayer(20));
+			pipeline.submit(1, getPlayer(30));
+			assertTrue(pipeline.isPending(1));
+
+			assertEquals(2, pipeline.flush());
+			assertFalse(pipeline.isPending(1));
+			assertEquals(Arrays.asList(1L, 2L), store.getWrites());
+			assertEquals(30, store.load(1).getGold());
+			assertEquals(20, store.load(2).getGold());
+
+			assertEquals(0, pipeline.flush());
+		}
+	}
+
+	@Test
+	public void requeuesPlayersAfterFailure() throws IOException {
+		RecordingStore store = new RecordingStore();
+		try (SavePipeline pipeline = new SavePipeline(store, CAPACITY)) {
+			store.setFailing(true);
+			pipeline.submit(1, getPlayer(10));
+			pipeline.submit(2, getPlayer(20));
+			assertThrows(IOException.class, pipeline::flush);
+			assertTrue(pipeline.isPending(1));
+			assertTrue(pipeline.isPending(2));
+
+			pipeline.submit(2, getPlayer(30));
+			// A newer copy replaces the requeued one
+
+			store.setFailing(false);
+			pipeline.flush();
+			assertFalse(pipeline.isPending(2));
+			assertEquals(10, store.load(1).getGold());
+			assertEquals(30, store.load(2).getGold());
+			assertEquals(2, store.getWrites().size());
+		}
+	}
+
+	@Test
+	public void blocksSubmitsAtCapacity() throws IOException, InterruptedException {
+		RecordingStore store = new RecordingStore();
+		CountDownLatch gate = store.hold();
+		try (SavePipeline pipeline = new SavePipeline(store, 2)) {
+			pipeline.submit(1, getPlayer(10));
+			pipeline.submit(2, getPlayer(20));
+			// Reaches the capacity, so the writer takes both and blocks on the store
+			assertTrue(store.awaitEntered());
+
+			pipeline.submit(3, getPlayer(30));
+			pipeline.submit(4, getPlayer(40));
+			pipeline.submit(3, getPlayer(35));
+			// Replacing a pending copy doesn't need room
+
+			Thread blocked = submitLater(pipeline, 5, getPlayer(50));
+			blocked.join(BLOCK_TIME);
+			assertTrue(blocked.isAlive());
+
+			gate.countDown();
+			blocked.join(TIMEOUT);
+			assertFalse(blocked.isAlive());
+
+			pipeline.flush();
+			assertEquals(35, store.load(3).getGold());
+			assertEquals(50, store.load(5).getGold());
+		}
+	}
+
+	@Test
+	public void doesNotBlockWhileFailing() throws IOException, InterruptedException {
+		RecordingStore store = new RecordingStore();
+		try (SavePipeline pipeline = new SavePipeline(store, 1)) {
+			store.setFailing(true);
+			pipeline.submit(1, getPlayer(10));
+			assertThrows(IOException.class, pipeline::flush);
+
+			Thread submitter = new Thread(() -> {
+				for (long id = 2; id <= 10; id++)
+					pipeline.submit(id, getPlayer(id));
+			});
+			submitter.start();
+			submitter.join(TIMEOUT);
+			assertFalse(submitter.isAlive());
+
+			store.setFailing(false);
+			pipeline.flush();
+			assertEquals(10, store.getWrites().size());
+		}
+	}
+
+	@Test
+	public void writesRemainingPlayersOnClose() throws IOException {
+		RecordingStore store = new RecordingStore();
+		SavePipeline pipeline = new SavePipeline(store, CAPACITY);
+		pipeline.submit(1, getPlayer(10));
+		pipeline.close();
+
+		assertEquals(10, store.load(1).getGold());
+		assertThrows(IllegalStateException.class, pipeline::flush);
+		assertThrows(IllegalStateException.class, () -> pipeline.submit(2, getPlayer(20)));
+	}
+
+	@Nonnull
+	private static Thread submitLater(@Nonnull SavePipeline pipeline, long id, @Nonnull Player player) {
+		Thread thread = new Thread(() -> pipeline.submit(id, player));
+		thread.start();
+		return thread;
+	}
+
+	@Nonnull
+	private static Player getPlayer(long gold) {
+		Player player = LRpgExposed.getStarterPlayer();
+		player.setGold(gold);
+		return player;
+	}
+
+	/**
+	 * An in-memory store that records its writes, and can be made to fail or to block
+	 * until it's let through.
+	 */
+	private static class RecordingStore implements PlayerStore {
+
+		private final Map<Long, Player> players = new HashMap<>();
+		private final List<Long> writes = new ArrayList<>();
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private volatile boolean failing;
+		@Nullable
+		private volatile CountDownLatch gate;
+
+		public void setFailing(boolean failing) {
+			this.failing = failing;
+		}
+
+		/**
+		 * Makes the writes block until the returned latch is counted down.
+		 */
+		@Nonnull
+		public CountDownLatch hold() {
+			CountDownLatch gate = new CountDownLatch(1);
+			this.gate = gate;
+			return gate;
+		}
+
+		public boolean awaitEntered() throws InterruptedException {
+			return this.entered.await(TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+
+		@Nonnull
+		public synchronized List<Long> getWrites() {
+			return new ArrayList<>(this.writes);
+		}
+
+		@Override
+		public synchronized Player load(long id) {
+			return this.players.get(id);
+		}
+
+		@Override
+		public void store(long id, Player player) throws IOException {
+			this.entered.countDown();
+			CountDownLatch gate = this.gate;
+			if (gate != null) {
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+
+			if (this.failing)
+				throw new IOException("Failing on purpose.");
+
+			synchronized (this) {
+				this.players.put(id, player);
+				this.writes.add(id);
+			}
+		}
+
+		@Override
+		public synchronized void delete(long id) {
+			this.players.remove(id);
+		}
+
+		@Override
+		public synchronized Map<Long, Player> loadAll() {
+			return new HashMap<>(this.players);
+		}
+
+		@Override
+		public synchronized void snapshot(Map<Long, Player> players) {
+			this.players.clear();
+			this.players.putAll(players);
+		}
+
+	}
+
+}
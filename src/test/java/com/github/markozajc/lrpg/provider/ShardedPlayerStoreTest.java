@@ -0,0 +1,212 @@
+package com.github.markozajc.lrpg.provider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.markozajc.lrpg.game.LRpgExposed;
+import com.github.markozajc.lrpg.game.Player;
+
+public class ShardedPlayerStoreTest {
+
+	private static final int SHARDS = 4;
+	private static final int PLAYERS = 200;
+	private static final int BROKEN = 1;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void storesPlayersInTheirShards() throws IOException {
+		List<MemoryStore> shards = new ArrayList<>();
+		try (ShardedPlayerStore store = ShardedPlayerStore.open(this.directory, SHARDS, shard -> add(shards))) {
+			for (long id = 1; id <= PLAYERS; id++)
+				store.store(id, getPlayer(id));
+
+			for (long id = 1; id <= PLAYERS; id++) {
+				int shard = store.getShard(id);
+				assertTrue(shard >= 0 && shard < SHARDS);
+				assertTrue(shards.get(shard).players.containsKey(id));
+				assertEquals(id, store.load(id).getGold());
+			}
+
+			for (MemoryStore shard : shards)
+				assertFalse(shard.players.isEmpty());
+			// The IDs are spread over all of the shards
+
+			assertEquals(PLAYERS, store.loadAll().size());
+		}
+	}
+
+	@Test
+	public void quarantinesShardThatFailsToLoad() throws IOException {
+		List<MemoryStore> shards = new ArrayList<>();
+		try (ShardedPlayerStore store = ShardedPlayerStore.open(this.directory, SHARDS, shard -> add(shards))) {
+			Map<Long, Player> players = new HashMap<>();
+			for (long id = 1; id <= PLAYERS; id++) {
+				store.store(id, getPlayer(id));
+				players.put(id, getPlayer(id + PLAYERS));
+			}
+
+			MemoryStore broken = shards.get(BROKEN);
+			broken.broken = true;
+			int brokenPlayers = broken.players.size();
+
+			Map<Long, Player> loaded = store.loadAll();
+			assertTrue(store.isQuarantined(BROKEN));
+			assertEquals(PLAYERS - brokenPlayers, loaded.size());
+
+			for (long id = 1; id <= PLAYERS; id++) {
+				long quarantinedId = id;
+				if (store.getShard(id) == BROKEN) {
+					assertFalse(loaded.containsKey(id));
+					assertFalse(store.isAvailable(id));
+					assertThrows(IOException.class, () -> store.store(quarantinedId, getPlayer(0)));
+					assertThrows(IOException.class, () -> store.load(quarantinedId));
+
+				} else {
+					assertTrue(store.isAvailable(id));
+				}
+			}
+
+			store.snapshot(players);
+			assertEquals(brokenPlayers, broken.writes);
+			assertFalse(broken.snapshotted);
+			// Nothing is written to the quarantined shard, not even by a snapshot
+			for (int i = 0; i < SHARDS; i++)
+				if (i != BROKEN)
+					assertTrue(shards.get(i).snapshotted);
+		}
+	}
+
+	@Test
+	public void quarantinesShardThatFailsToOpen() throws IOException {
+		List<MemoryStore> shards = new ArrayList<>();
+		try (ShardedPlayerStore store = ShardedPlayerStore.open(this.directory, SHARDS, shard -> {
+			if (shard == BROKEN)
+				throw new IOException("Failing on purpose.");
+			return add(shards);
+		})) {
+			assertTrue(store.isQuarantined(BROKEN));
+			assertEquals(SHARDS - 1, shards.size());
+
+			for (long id = 1; id <= PLAYERS; id++) {
+				if (store.getShard(id) == BROKEN)
+					assertFalse(store.isAvailable(id));
+				else
+					store.store(id, getPlayer(id));
+			}
+			store.loadAll();
+			assertTrue(store.isQuarantined(BROKEN));
+			assertFalse(store.isQuarantined(0));
+		}
+	}
+
+	@Test
+	public void failsWhenAllShardsFailToOpen() {
+		assertThrows(IOException.class, () -> ShardedPlayerStore.open(this.directory, SHARDS, shard -> {
+			throw new IOException("Failing on purpose.");
+		}));
+	}
+
+	@Test
+	public void refusesDifferentShardCount() throws IOException {
+		List<MemoryStore> shards = new ArrayList<>();
+		ShardedPlayerStore.open(this.directory, SHARDS, shard -> add(shards)).close();
+
+		assertThrows(IOException.class, () -> ShardedPlayerStore.open(this.directory, SHARDS + 1,
+			shard -> new MemoryStore()));
+		assertThrows(IOException.class, () -> ShardedPlayerStore.open(this.directory, SHARDS - 1,
+			shard -> new MemoryStore()));
+
+		try (ShardedPlayerStore store = ShardedPlayerStore.open(this.directory, SHARDS, shard -> new MemoryStore())) {
+			assertEquals(SHARDS, store.getShardCount());
+		}
+	}
+
+	@Test
+	public void assignsTheSameShardsAfterReopen() throws IOException {
+		int[] assigned = new int[PLAYERS + 1];
+		try (ShardedPlayerStore store = ShardedPlayerStore.open(this.directory, SHARDS, shard -> new MemoryStore())) {
+			for (int id = 1; id <= PLAYERS; id++)
+				assigned[id] = store.getShard(id);
+		}
+
+		try (ShardedPlayerStore store = ShardedPlayerStore.open(this.directory, SHARDS, shard -> new MemoryStore())) {
+			for (int id = 1; id <= PLAYERS; id++)
+				assertEquals(assigned[id], store.getShard(id));
+		}
+	}
+
+	@Nonnull
+	private static MemoryStore add(@Nonnull List<MemoryStore> shards) {
+		MemoryStore shard = new MemoryStore();
+		shards.add(shard);
+		return shard;
+	}
+
+	@Nonnull
+	private static Player getPlayer(long gold) {
+		Player player = LRpgExposed.getStarterPlayer();
+		player.setGold(gold);
+		return player;
+	}
+
+	/**
+	 * An in-memory shard that counts its writes, and can be made to fail loading as if
+	 * it were corrupted.
+	 */
+	private static class MemoryStore implements PlayerStore {
+
+		final Map<Long, Player> players = new HashMap<>();
+		volatile boolean broken;
+		int writes;
+		boolean snapshotted;
+
+		@Override
+		public synchronized Player load(long id) {
+			return this.players.get(id);
+		}
+
+		@Override
+		public synchronized void store(long id, Player player) {
+			this.players.put(id, player);
+			this.writes++;
+		}
+
+		@Override
+		public synchronized void delete(long id) {
+			this.players.remove(id);
+		}
+
+		@Override
+		public synchronized Map<Long, Player> loadAll() throws IOException {
+			if (this.broken)
+				throw new IOException("Failing on purpose.");
+
+			return new HashMap<>(this.players);
+		}
+
+		@Override
+		public synchronized void snapshot(Map<Long, Player> players) {
+			this.players.clear();
+			this.players.putAll(players);
+			this.snapshotted = true;
+		}
+
+	}
+
+}